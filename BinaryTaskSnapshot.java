@@ -0,0 +1,440 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Snapshot binaire versionné des tâches, lu d'un bloc dans un tampon du tas.
+ *
+ * Format (version 4, entiers big-endian) :
+ *   en-tête    : magic, version, séquence du journal (long), nombre de tâches,
+ *                position des enregistrements, position du dictionnaire de statuts,
+ *                ordre d'affichage actif (ordinal de TaskManager.SortOrder),
+ *                dernier identifiant attribué (long), position des sommes de contrôle,
+ *                CRC32C des 44 octets précédents
+ *   chaînes    : pool de chaînes UTF-8 préfixées par leur longueur (int, -1 pour null)
+ *   enregistr. : 24 octets par tâche = identifiant (long), offset titre, offset description,
+ *                jour epoch de l'échéance (Task.NO_DATE si absente), code statut (short), bourrage
+ *   statuts    : nombre puis chaînes préfixées par leur longueur
+ *   contrôle   : nombre de blocs puis un CRC32C par bloc de 64 Ko, de la fin de l'en-tête
+ *                jusqu'au début de cette table
+ *
+ * Les enregistrements sont de taille fixe : la tâche i est lue sans parcourir le fichier,
+ * et chacun de ses champs n'est décodé qu'au premier accès. Les sommes de contrôle sont
+ * calculées pendant l'écriture et vérifiées à l'ouverture directement sur le tampon lu
+ * (CRC32C est accéléré par le processeur : quelques millisecondes pour 100 Mo) ;
+ * un fichier abîmé est refusé au lieu de perdre des tâches en silence. Les versions 3
+ * (code statut sur un octet, 256 statuts au plus), 2 (sans sommes de contrôle non plus)
+ * et 1 (sans identifiants, en-tête de 32 octets, enregistrements de 16 octets) restent
+ * lisibles ; en version 1 les identifiants sont attribués dans l'ordre du fichier.
+ */
+public class BinaryTaskSnapshot {
+    private static final int MAGIC = 0x54534B42; // "TSKB"
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = 48;
+    private static final int V2_HEADER_SIZE = 40;
+    // Taille des blocs couverts chacun par un CRC32C
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final int RECORD_SIZE = 24;
+    private static final int V1_HEADER_SIZE = 32;
+    private static final int V1_RECORD_SIZE = 16;
+    private static final int PROGRESS_MASK = (1 << 16) - 1;
+
+    // Lecture par morceaux : un seul gros read ferait allouer (et garder) un tampon direct de même taille
+    private static final int READ_CHUNK = 1 << 20;
+
+    private final ByteBuffer buffer;
+    private final long journalSequence;
+    private final int taskCount;
+    private final int recordsOffset;
+    private final int sortOrder;
+    private final long lastId;
+    private final int recordSize;
+    private final boolean storesIds;
+    // Code statut sur deux octets (version 4) plutôt qu'un
+    private final boolean wideStatus;
+    // Code de statut de Task pour chaque code du fichier
+    private final short[] statusCodes;
+
+    private BinaryTaskSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < V1_HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Fichier de tâches binaire invalide");
+        }
+        int version = buffer.getInt(4);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Version de fichier non supportée: " + version);
+        }
+        this.storesIds = version >= 2;
+        this.wideStatus = version >= 4;
+        int headerSize = version >= 3 ? HEADER_SIZE : storesIds ? V2_HEADER_SIZE : V1_HEADER_SIZE;
+        this.recordSize = storesIds ? RECORD_SIZE : V1_RECORD_SIZE;
+        if (buffer.capacity() < headerSize) {
+            throw new IOException("Fichier de tâches binaire tronqué");
+        }
+        if (version >= 3) {
+            verifyChecksums(buffer);
+        }
+        this.journalSequence = buffer.getLong(8);
+        this.taskCount = buffer.getInt(16);
+        this.recordsOffset = buffer.getInt(20);
+        int statusOffset = buffer.getInt(24);
+        this.sortOrder = buffer.getInt(28);
+        this.lastId = storesIds ? buffer.getLong(32) : taskCount;
+        if (recordsOffset < headerSize || (long) recordsOffset + (long) taskCount * recordSize > statusOffset
+                || statusOffset + 4 > buffer.capacity()) {
+            throw new IOException("Fichier de tâches binaire tronqué");
+        }
+
+        int statusCount = buffer.getInt(statusOffset);
+        this.statusCodes = new short[wideStatus ? 1 << 16 : 1 << 8];
+        if (statusCount < 0 || statusCount > statusCodes.length) {
+            throw new IOException("Fichier de tâches binaire invalide");
+        }
+        int position = statusOffset + 4;
+        for (int i = 0; i < statusCount; i++) {
+            statusCodes[i] = Task.statusCode(readString(position));
+            position += 4 + Math.max(0, buffer.getInt(position));
+        }
+    }
+
+    // Vérifie l'en-tête puis chaque bloc, sans copie
+    private static void verifyChecksums(ByteBuffer buffer) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, HEADER_SIZE - 4));
+        if ((int) crc.getValue() != buffer.getInt(HEADER_SIZE - 4)) {
+            throw new IOException("Fichier de tâches corrompu (en-tête)");
+        }
+        int checksumOffset = buffer.getInt(V2_HEADER_SIZE);
+        long blocks = ((long) checksumOffset - HEADER_SIZE + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        if (checksumOffset < HEADER_SIZE || checksumOffset + 4 + blocks * 4 > buffer.capacity()
+                || buffer.getInt(checksumOffset) != blocks) {
+            throw new IOException("Fichier de tâches binaire tronqué");
+        }
+        for (int block = 0; block < blocks; block++) {
+            int start = HEADER_SIZE + block * BLOCK_SIZE;
+            crc.reset();
+            crc.update(buffer.slice(start, Math.min(BLOCK_SIZE, checksumOffset - start)));
+            if ((int) crc.getValue() != buffer.getInt(checksumOffset + 4 + block * 4)) {
+                throw new IOException("Fichier de tâches corrompu (bloc " + block + ", octets " + start + " à "
+                        + Math.min(start + BLOCK_SIZE, checksumOffset) + ")");
+            }
+        }
+    }
+
+    /**
+     * Ouvrir un snapshot (rien n'est décodé ici). Le fichier est lu dans le tas plutôt que
+     * projeté : les tâches paresseuses peuvent vivre jusqu'à la fin de l'application, et sous
+     * Windows une projection encore ouverte empêche write de remplacer le fichier.
+     */
+    public static BinaryTaskSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Fichier de tâches trop volumineux: " + size + " octets");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                buffer.limit(Math.min(buffer.capacity(), buffer.position() + READ_CHUNK));
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Fichier de tâches binaire tronqué");
+                }
+                buffer.limit(buffer.capacity());
+            }
+            return new BinaryTaskSnapshot(buffer.clear());
+        }
+    }
+
+    public int size() {
+        return taskCount;
+    }
+
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    public int getSortOrder() {
+        return sortOrder;
+    }
+
+    // Plus grand identifiant attribué, y compris à des tâches supprimées depuis
+    public long getLastId() {
+        return lastId;
+    }
+
+    // false pour un fichier de version 1, dont le journal désigne les tâches par position
+    public boolean storesIds() {
+        return storesIds;
+    }
+
+    // Tâche numéro index ; le titre et la description sont décodés depuis le tampon au premier accès
+    public Task read(int index) {
+        if (index < 0 || index >= taskCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Taille: " + taskCount);
+        }
+        int record = recordsOffset + index * recordSize;
+        long id = index + 1;
+        if (storesIds) {
+            id = buffer.getLong(record);
+            record += 8;
+        }
+        int status = wideStatus ? buffer.getShort(record + 12) & 0xFFFF : buffer.get(record + 12) & 0xFF;
+        return new SnapshotTask(this, record, id, buffer.getInt(record + 8), statusCodes[status]);
+    }
+
+    /**
+     * Tâche adossée à un enregistrement du snapshot. L'échéance et le statut sont copiés à la
+     * lecture (un int et un short) ; les chaînes ne sont décodées que si elles sont affichées
+     * ou recherchées, puis gardées (course bénigne entre threads : même valeur décodée).
+     */
+    private static final class SnapshotTask extends Task {
+        private final BinaryTaskSnapshot source;
+        private final int record;
+        private String title;
+        private String description;
+
+        SnapshotTask(BinaryTaskSnapshot source, int record, long id, int dueEpochDay, short statusCode) {
+            super(id, null, null, dueEpochDay, statusCode);
+            this.source = source;
+            this.record = record;
+        }
+
+        @Override
+        public String getTitle() {
+            String value = title;
+            if (value == null) {
+                value = source.readString(source.buffer.getInt(record));
+                title = value;
+            }
+            return value;
+        }
+
+        @Override
+        public String getDescription() {
+            String value = description;
+            if (value == null) {
+                value = source.readString(source.buffer.getInt(record + 4));
+                description = value;
+            }
+            return value;
+        }
+    }
+
+    private String readString(int offset) {
+        int length = buffer.getInt(offset);
+        return length < 0 ? null : new String(buffer.array(), offset + 4, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Écrire les tâches dans un fichier temporaire synchronisé puis le renommer atomiquement
+     * sur path, et synchroniser le répertoire pour que le renommage survive à une coupure.
+     * Un arrêt à n'importe quel moment laisse l'ancien fichier ou le nouveau, jamais un
+     * mélange. Le fichier existant n'est jamais tronqué sur place, et open n'en garde aucune
+     * projection ouverte : le renommage réussit aussi sous Windows. progress (facultatif) peut interrompre
+     * l'écriture en levant une exception ; le fichier temporaire est alors supprimé.
+     */
+    public static void write(Path path, List<Task> tasks, long journalSequence, int sortOrder, long lastId,
+            TaskManager.ProgressListener progress) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            writeFile(tmp, tasks, journalSequence, sortOrder, lastId, progress);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory(path.toAbsolutePath().getParent());
+    }
+
+    // Synchronise l'entrée de répertoire (sans effet là où un répertoire ne peut pas être ouvert)
+    private static void forceDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Windows : les répertoires ne s'ouvrent pas ; le renommage y est journalisé par NTFS
+        }
+    }
+
+    private static void writeFile(Path tmp, List<Task> tasks, long journalSequence, int sortOrder, long lastId,
+            TaskManager.ProgressListener progress) throws IOException {
+        int count = tasks.size();
+        long[] ids = new long[count];
+        int[] titleOffsets = new int[count];
+        int[] descriptionOffsets = new int[count];
+        int[] epochDays = new int[count];
+        short[] statusCodes = new short[count];
+        Map<String, Integer> statusCodeByName = new HashMap<>();
+        List<String> statusNames = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // Sommes calculées sous le tampon : elles reçoivent des morceaux de 64 Ko, pas des octets isolés
+            BlockChecksums checksums = new BlockChecksums(Channels.newOutputStream(channel));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checksums, 1 << 16));
+            out.write(new byte[HEADER_SIZE]); // complété à la fin
+
+            // Pool de chaînes
+            int index = 0;
+            for (Task task : tasks) {
+                ids[index] = task.getId();
+                titleOffsets[index] = out.size();
+                writeString(out, task.getTitle());
+                descriptionOffsets[index] = out.size();
+                writeString(out, task.getDescription());
+                epochDays[index] = task.getDueEpochDay();
+
+                String status = task.getStatus();
+                Integer code = statusCodeByName.get(status);
+                if (code == null) {
+                    // Au plus les 65 535 libellés de Task et null : toujours codable sur deux octets
+                    code = statusNames.size();
+                    statusCodeByName.put(status, code);
+                    statusNames.add(status);
+                }
+                statusCodes[index] = (short) (int) code;
+                index++;
+                if (progress != null && (index & PROGRESS_MASK) == 0) {
+                    progress.progress(out.size(), -1, index, count);
+                }
+            }
+
+            // Enregistrements de taille fixe
+            int recordsOffset = out.size();
+            for (int i = 0; i < count; i++) {
+                out.writeLong(ids[i]);
+                out.writeInt(titleOffsets[i]);
+                out.writeInt(descriptionOffsets[i]);
+                out.writeInt(epochDays[i]);
+                out.writeShort(statusCodes[i]);
+                out.writeShort(0);
+            }
+
+            // Dictionnaire des statuts
+            int statusOffset = out.size();
+            out.writeInt(statusNames.size());
+            for (String status : statusNames) {
+                writeString(out, status);
+            }
+
+            // Sommes de contrôle de tout ce qui précède (hors en-tête, qui a la sienne)
+            int checksumOffset = out.size();
+            out.flush();
+            int[] blockCrcs = checksums.finish();
+            out.writeInt(blockCrcs.length);
+            for (int crc : blockCrcs) {
+                out.writeInt(crc);
+            }
+            out.flush();
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Fichier de tâches trop volumineux");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(journalSequence).putInt(count)
+                    .putInt(recordsOffset).putInt(statusOffset).putInt(sortOrder).putLong(lastId)
+                    .putInt(checksumOffset);
+            CRC32C headerCrc = new CRC32C();
+            headerCrc.update(header.array(), 0, HEADER_SIZE - 4);
+            header.putInt((int) headerCrc.getValue());
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+            if (progress != null) {
+                progress.progress(out.size(), out.size(), count, count);
+            }
+        }
+    }
+
+    /**
+     * Flux qui calcule le CRC32C de chaque bloc de BLOCK_SIZE octets au passage, à partir de
+     * la fin de l'en-tête (les HEADER_SIZE premiers octets, écrits à la fin, sont ignorés).
+     */
+    private static final class BlockChecksums extends FilterOutputStream {
+        private final CRC32C crc = new CRC32C();
+        private int[] crcs = new int[16];
+        private int blocks;
+        private long position;
+        private int inBlock;
+        private boolean finished;
+
+        BlockChecksums(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (!finished && position++ >= HEADER_SIZE) {
+                crc.update(b);
+                if (++inBlock == BLOCK_SIZE) {
+                    endBlock();
+                }
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            if (finished) {
+                return;
+            }
+            int skipped = (int) Math.max(0, Math.min(length, HEADER_SIZE - position));
+            position += length;
+            offset += skipped;
+            length -= skipped;
+            while (length > 0) {
+                int chunk = Math.min(length, BLOCK_SIZE - inBlock);
+                crc.update(bytes, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+                inBlock += chunk;
+                if (inBlock == BLOCK_SIZE) {
+                    endBlock();
+                }
+            }
+        }
+
+        // Clôt le dernier bloc et renvoie les sommes ; les octets écrits ensuite ne sont plus comptés
+        int[] finish() {
+            if (inBlock > 0) {
+                endBlock();
+            }
+            finished = true;
+            return Arrays.copyOf(crcs, blocks);
+        }
+
+        private void endBlock() {
+            if (blocks == crcs.length) {
+                crcs = Arrays.copyOf(crcs, blocks * 2);
+            }
+            crcs[blocks++] = (int) crc.getValue();
+            crc.reset();
+            inBlock = 0;
+        }
+    }
+
+    // null s'écrit avec la longueur -1 : un statut absent ne redevient pas un statut ""
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,203 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.InvocationEvent;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import javax.swing.AbstractButton;
+
+/**
+ * Détecteur de blocages du thread d'événements (EDT), activé par -Dtasks.edt.watchdog=<ms>.
+ *
+ * Une file d'événements intercalée note le début et la fin de chaque événement distribué ;
+ * un thread de surveillance relève ceux qui durent plus que le seuil. Pour chacun, la pile
+ * de l'EDT est capturée pendant le blocage, avec l'événement en cause (bouton, touche...)
+ * et la première méthode de TaskGUI de la pile, puis écrite dans un fichier de traces
+ * tournant (-Dtasks.edt.trace, edt-stalls.log par défaut). Le temps passé dans une boucle
+ * d'événements imbriquée (boîte de dialogue modale) n'est pas compté comme un blocage.
+ */
+public final class EdtWatchdog extends EventQueue {
+    public static final String THRESHOLD_PROPERTY = "tasks.edt.watchdog";
+    public static final String TRACE_PROPERTY = "tasks.edt.trace";
+
+    private static final String DEFAULT_TRACE_FILE = "edt-stalls.log";
+    // Rotation : le fichier courant puis TRACE_FILES - 1 anciens (.1, .2...)
+    private static final long MAX_TRACE_BYTES = 1 << 20;
+    private static final int TRACE_FILES = 3;
+    private static final int MAX_STACK_FRAMES = 40;
+
+    private static EdtWatchdog installed;
+
+    private final long thresholdNanos;
+    private final Path traceFile;
+
+    // Événement en cours de distribution (écrits par l'EDT, lus par la surveillance)
+    private volatile long currentSeq;
+    private volatile long currentStart;
+    private volatile AWTEvent currentEvent;
+    private volatile Thread edt;
+    private long nextSeq;
+    // Dernier événement signalé et sa fin, pour noter sa durée totale
+    private volatile long reportedSeq;
+    private volatile long reportedEndSeq;
+    private volatile long reportedNanos;
+
+    private EdtWatchdog(long thresholdNanos, Path traceFile) {
+        this.thresholdNanos = thresholdNanos;
+        this.traceFile = traceFile;
+    }
+
+    // Installe le détecteur si tasks.edt.watchdog est défini ; sans effet sinon ou s'il l'est déjà
+    public static synchronized void startFromSystemProperties() {
+        Long thresholdMillis = Long.getLong(THRESHOLD_PROPERTY);
+        if (thresholdMillis == null || thresholdMillis <= 0 || installed != null) {
+            return;
+        }
+        Path trace = Paths.get(System.getProperty(TRACE_PROPERTY, DEFAULT_TRACE_FILE));
+        installed = new EdtWatchdog(thresholdMillis * 1_000_000L, trace);
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(installed);
+
+        Thread monitor = new Thread(installed::monitor, "edt-watchdog");
+        monitor.setDaemon(true);
+        monitor.start();
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        // Un événement peut en distribuer d'autres (boucle modale) : l'état englobant est
+        // restauré ensuite, chronomètre remis à zéro
+        long outerSeq = currentSeq;
+        AWTEvent outerEvent = currentEvent;
+        long seq = ++nextSeq;
+        long start = System.nanoTime();
+        edt = Thread.currentThread();
+        currentEvent = event;
+        currentStart = start;
+        currentSeq = seq;
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            if (seq == reportedSeq) {
+                reportedNanos = System.nanoTime() - start;
+                reportedEndSeq = seq;
+            }
+            currentSeq = 0;
+            currentEvent = outerEvent;
+            currentStart = System.nanoTime();
+            currentSeq = outerSeq;
+        }
+    }
+
+    // Boucle de surveillance : un relevé par événement trop long, puis sa durée totale
+    private void monitor() {
+        long pollMillis = Math.max(5, thresholdNanos / 4_000_000L);
+        boolean awaitingEnd = false;
+        while (true) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (awaitingEnd && reportedEndSeq == reportedSeq) {
+                write(String.format("    terminé après %d ms%n%n", reportedNanos / 1_000_000));
+                awaitingEnd = false;
+            }
+
+            long seq = currentSeq;
+            AWTEvent event = currentEvent;
+            Thread thread = edt;
+            long elapsed = System.nanoTime() - currentStart;
+            if (seq == 0 || seq == reportedSeq || elapsed < thresholdNanos || thread == null || currentSeq != seq) {
+                continue;
+            }
+            if (awaitingEnd) {
+                write(String.format("    (fin non observée)%n%n"));
+            }
+            // Marqué avant la capture pour que l'EDT note sa fin même s'il termine entre-temps
+            reportedSeq = seq;
+            StackTraceElement[] stack = thread.getStackTrace();
+            awaitingEnd = currentSeq == seq;
+            if (awaitingEnd) {
+                write(report(elapsed, event, stack));
+            } // sinon terminé pendant la capture : la pile ne montrerait pas le blocage
+        }
+    }
+
+    private String report(long elapsed, AWTEvent event, StackTraceElement[] stack) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(LocalDateTime.now().withNano(0)).append("  EDT bloqué depuis ").append(elapsed / 1_000_000)
+                .append(" ms\n");
+        sb.append("    événement : ").append(describe(event)).append('\n');
+        sb.append("    action    : ").append(guiAction(stack)).append('\n');
+        int frames = Math.min(stack.length, MAX_STACK_FRAMES);
+        for (int i = 0; i < frames; i++) {
+            sb.append("        at ").append(stack[i]).append('\n');
+        }
+        if (stack.length > frames) {
+            sb.append("        ... ").append(stack.length - frames).append(" de plus\n");
+        }
+        return sb.toString();
+    }
+
+    // Bouton, touche ou tâche différée à l'origine de l'événement
+    private static String describe(AWTEvent event) {
+        if (event == null) {
+            return "inconnu";
+        }
+        if (event instanceof ActionEvent && event.getSource() instanceof AbstractButton) {
+            return "bouton « " + ((AbstractButton) event.getSource()).getText() + " »";
+        }
+        if (event instanceof InputEvent) {
+            return event.paramString();
+        }
+        if (event instanceof InvocationEvent) {
+            return "tâche différée (invokeLater ou Timer)";
+        }
+        return event.getClass().getSimpleName() + " " + event.paramString();
+    }
+
+    // Première méthode de TaskGUI (ou de ses classes internes) dans la pile capturée
+    private static String guiAction(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if ((className.equals("TaskGUI") || className.startsWith("TaskGUI$"))
+                    && !frame.getMethodName().startsWith("lambda$")) {
+                return "TaskGUI." + frame.getMethodName() + " (ligne " + frame.getLineNumber() + ")";
+            }
+        }
+        return "hors de TaskGUI";
+    }
+
+    private void write(String text) {
+        try {
+            if (Files.exists(traceFile) && Files.size(traceFile) > MAX_TRACE_BYTES) {
+                rotate();
+            }
+            try (Writer out = Files.newBufferedWriter(traceFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND)) {
+                out.write(text);
+            }
+        } catch (IOException e) {
+            System.err.println("Trace EDT non écrite : " + e.getMessage());
+        }
+    }
+
+    private void rotate() throws IOException {
+        for (int i = TRACE_FILES - 1; i >= 1; i--) {
+            Path older = traceFile.resolveSibling(traceFile.getFileName() + "." + i);
+            Path newer = i == 1 ? traceFile : traceFile.resolveSibling(traceFile.getFileName() + "." + (i - 1));
+            if (Files.exists(newer)) {
+                Files.move(newer, older, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
@@ -1,25 +1,78 @@
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Classe représentant une tâche
+ * Immuable : une modification crée une copie (withId, asCompleted). La représentation est
+ * compacte pour tenir des millions de tâches : l'échéance est un jour epoch (int) et le
+ * statut un code sur deux octets vers une table de libellés partagée par toutes les tâches.
  */
 public class Task {
-    private String title;
-    private String description;
-    private LocalDate dueDate;
-    private String status; // "En cours" ou "Terminé"
+    public static final String STATUS_IN_PROGRESS = "En cours";
+    public static final String STATUS_COMPLETED = "Terminé";
+
+    // Jour epoch d'une tâche sans échéance
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    // Code réservé au statut null ; les autres codes (non signés) sont des indices dans statusLabels
+    private static final short NO_STATUS = (short) 0xFFFF;
+    private static final int MAX_STATUSES = 0xFFFF;
+    private static final short IN_PROGRESS_CODE = 0;
+    static final short COMPLETED_CODE = 1;
+
+    // Libellés par code, lus sans verrou ; le tableau double quand il est plein
+    private static volatile String[] statusLabels = { STATUS_IN_PROGRESS, STATUS_COMPLETED };
+    // Nombre de codes attribués, écrit après le libellé : qui le lit voit les libellés
+    private static volatile int statusCount = 2;
+    private static final Map<String, Short> STATUS_CODES = new ConcurrentHashMap<>();
+
+    static {
+        STATUS_CODES.put(STATUS_IN_PROGRESS, IN_PROGRESS_CODE);
+        STATUS_CODES.put(STATUS_COMPLETED, COMPLETED_CODE);
+    }
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
+    // Dates formatées récemment, partagées entre les tâches (les échéances se répètent beaucoup)
+    private static final int FORMAT_CACHE_SIZE = 1 << 12;
+    private static final FormattedDate[] FORMAT_CACHE = new FormattedDate[FORMAT_CACHE_SIZE];
+
+    private static final class FormattedDate {
+        final int epochDay;
+        final String text;
+
+        FormattedDate(int epochDay, String text) {
+            this.epochDay = epochDay;
+            this.text = text;
+        }
+    }
+
+    private final long id; // attribué par le TaskManager, 0 tant que la tâche n'y est pas
+    private final String title;
+    private final String description;
+    private final int dueEpochDay;
+    private final short statusCode;
+
     public Task(String title, String description, LocalDate dueDate, String status) {
+        this(0, title, description, toEpochDay(dueDate), statusCode(status));
+    }
+
+    Task(long id, String title, String description, int dueEpochDay, short statusCode) {
+        this.id = id;
         this.title = title;
         this.description = description;
-        this.dueDate = dueDate;
-        this.status = status;
+        this.dueEpochDay = dueEpochDay;
+        this.statusCode = statusCode;
     }
 
     // Getters
+    public long getId() {
+        return id;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -28,49 +81,72 @@ public class Task {
         return description;
     }
 
+    // Échéance, null si aucune (crée un LocalDate : préférer getDueEpochDay dans les boucles)
     public LocalDate getDueDate() {
-        return dueDate;
+        return dueEpochDay == NO_DATE ? null : LocalDate.ofEpochDay(dueEpochDay);
+    }
+
+    // Échéance en jour epoch, NO_DATE si aucune
+    public int getDueEpochDay() {
+        return dueEpochDay;
+    }
+
+    public boolean hasDueDate() {
+        return dueEpochDay != NO_DATE;
     }
 
     public String getStatus() {
-        return status;
+        return statusLabel(statusCode);
     }
 
-    // Setters
-    public void setTitle(String title) {
-        this.title = title;
+    // Code du statut dans la table des libellés
+    short getStatusCode() {
+        return statusCode;
     }
 
-    public void setDescription(String description) {
-        this.description = description;
+    public boolean isCompleted() {
+        return statusCode == COMPLETED_CODE;
     }
 
-    public void setDueDate(LocalDate dueDate) {
-        this.dueDate = dueDate;
+    // Copie portant l'identifiant donné
+    public Task withId(long newId) {
+        return new Task(newId, getTitle(), getDescription(), dueEpochDay, statusCode);
     }
 
-    public void setStatus(String status) {
-        this.status = status;
+    // Copie marquée comme terminée
+    public Task asCompleted() {
+        return new Task(id, getTitle(), getDescription(), dueEpochDay, COMPLETED_CODE);
     }
 
-    // Méthode pour marquer comme terminé
-    public void markAsCompleted() {
-        this.status = "Terminé";
+    // Copie portant le statut donné
+    public Task withStatus(String newStatus) {
+        return new Task(id, getTitle(), getDescription(), dueEpochDay, statusCode(newStatus));
     }
 
-    // Méthode pour obtenir la date formatée
+    // Méthode pour obtenir la date formatée (partagée entre tâches, la table la redemande à chaque dessin)
     public String getFormattedDate() {
-        return dueDate != null ? dueDate.format(DATE_FORMATTER) : "";
+        if (dueEpochDay == NO_DATE) {
+            return "";
+        }
+        int slot = dueEpochDay & (FORMAT_CACHE_SIZE - 1);
+        FormattedDate cached = FORMAT_CACHE[slot];
+        if (cached == null || cached.epochDay != dueEpochDay) {
+            // Course bénigne : au pire la même date est formatée deux fois
+            cached = new FormattedDate(dueEpochDay, LocalDate.ofEpochDay(dueEpochDay).format(DATE_FORMATTER));
+            FORMAT_CACHE[slot] = cached;
+        }
+        return cached.text;
     }
 
     // Méthode toString pour l'affichage
     @Override
     public String toString() {
+        LocalDate date = getDueDate();
         return String.format("%s|%s|%s|%s",
-                title,
-                description,
-                dueDate != null ? dueDate.toString() : "",
-                status);
+                getTitle(),
+                getDescription(),
+                date != null ? date.toString() : "",
+                getStatus());
     }
 
     // Méthode pour créer une tâche à partir d'une chaîne
@@ -82,4 +158,71 @@ public class Task {
         }
         return null;
     }
+
+    // Jour epoch d'une échéance ; les dates hors de la plage d'un int sont refusées
+    static int toEpochDay(LocalDate date) {
+        if (date == null) {
+            return NO_DATE;
+        }
+        long epochDay = date.toEpochDay();
+        if (epochDay <= NO_DATE || epochDay > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Date d'échéance hors limites: " + date);
+        }
+        return (int) epochDay;
+    }
+
+    // Code d'un statut, ajouté à la table des libellés au premier usage
+    static short statusCode(String status) {
+        if (status == null) {
+            return NO_STATUS;
+        }
+        Short code = STATUS_CODES.get(status);
+        return code != null ? code : registerStatus(status);
+    }
+
+    // Code d'un statut déjà connu, sans l'ajouter à la table ; null pour un libellé jamais vu
+    static Short knownStatusCode(String status) {
+        if (status == null) {
+            return NO_STATUS;
+        }
+        return STATUS_CODES.get(status);
+    }
+
+    // Libellé d'un code de statut, null pour un code sans libellé
+    static String statusLabel(short code) {
+        String[] labels = statusLabels;
+        int index = code & 0xFFFF;
+        return code != NO_STATUS && index < labels.length ? labels[index] : null;
+    }
+
+    // Nombre de codes attribués : les codes 0 à statusCount() - 1 ont un libellé
+    static int statusCount() {
+        return statusCount;
+    }
+
+    // Indice d'un code dans un tableau par statut de statusCount() + 1 cases : 0 pour null, code + 1 sinon
+    static int statusSlot(short code) {
+        return (code + 1) & 0xFFFF;
+    }
+
+    private static synchronized short registerStatus(String status) {
+        Short code = STATUS_CODES.get(status);
+        if (code != null) {
+            return code;
+        }
+        int count = statusCount;
+        if (count >= MAX_STATUSES) {
+            throw new IllegalArgumentException("Trop de statuts différents (maximum " + MAX_STATUSES + ")");
+        }
+        String[] labels = statusLabels;
+        if (count == labels.length) {
+            labels = Arrays.copyOf(labels, Math.min(MAX_STATUSES, count * 2));
+        }
+        labels[count] = status;
+        // Libellé, tableau puis nombre publiés avant le code : un lecteur qui voit le code voit son libellé
+        statusLabels = labels;
+        statusCount = count + 1;
+        STATUS_CODES.put(status, (short) count);
+        return (short) count;
+    }
 }
@@ -0,0 +1,980 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+
+/**
+ * Mesures de performance, lancées à la main :
+ *   java TaskBenchmark scroll      temps de dessin d'une page de la table selon le nombre de lignes
+ *   java TaskBenchmark concurrent  écritures et lectures simultanées depuis plusieurs threads,
+ *                                  avec vérification de la cohérence (code de sortie 1 sinon)
+ *   java TaskBenchmark memory      octets de tas par tâche, ancienne représentation contre l'actuelle
+ *   java TaskBenchmark storage [n] chargement, tas, ramasse-miettes, tri et recherche pour n tâches
+ *                                  (2 millions par défaut) en Storage.HEAP puis Storage.COLUMNS ;
+ *                                  écrit tasks.bin, à lancer dans un répertoire vide
+ *   java TaskBenchmark hotpaths [n...]
+ *                                  chemins critiques (recherche selon la sélectivité, tris,
+ *                                  chargement, sauvegarde, Task.fromString/toString) pour chaque
+ *                                  nombre de tâches n (1 000, 100 000 et 1 million par défaut) et
+ *                                  chaque rangement : débit, latence (moyenne, p50, p99) et octets
+ *                                  alloués par opération (par le thread appelant seulement) ;
+ *                                  écrit tasks.bin, à lancer dans un répertoire vide. Les mêmes
+ *                                  chemins, jusqu'à 10 millions de tâches, sont des benchmarks
+ *                                  JMH dans src/jmh/java (gradle jmh)
+ *   java TaskBenchmark streaming [n]
+ *                                  export de n tâches générées (10 millions par défaut) dans chaque
+ *                                  format de TaskExchange, puis copie du fichier par un éditeur et
+ *                                  un abonné Flow, vérifiée octet par octet ; avec -Xmx64m, montre
+ *                                  que la mémoire ne dépend pas de n (écrit export.* et copy.*)
+ *   java TaskBenchmark queries [n] requêtes de TaskManager.query sur n tâches (1 million par défaut)
+ *                                  dans chaque rangement : plan choisi, délai de la première page,
+ *                                  temps total, contre un filtrage de toutes les tâches, puis les
+ *                                  comptages par statut et en retard contre un parcours ; vérifie
+ *                                  les nombres obtenus (écrit tasks.bin, répertoire vide)
+ *   java TaskBenchmark bulk [n] [k]
+ *                                  opérations par lot sur k tâches sélectionnées (100 000 par
+ *                                  défaut) parmi n (1 million) avec le journal ouvert et les deux
+ *                                  vues triées construites, contre les mêmes opérations tâche par
+ *                                  tâche ; vérifie les comptages puis le rechargement du journal
+ *                                  (écrit tasks.bin et tasks.journal, répertoire vide)
+ *   java TaskBenchmark history [n] [k]
+ *                                  k modifications gardées dans l'historique (10 000 par défaut)
+ *                                  sur n tâches (1 million) : tas retenu par modification contre
+ *                                  une copie de la liste, puis durée de k undo et k redo ; vérifie
+ *                                  le contenu après chacun, puis le rejeu d'un ajout annulé et
+ *                                  rétabli en écriture différée (écrit tasks.bin et tasks.journal,
+ *                                  répertoire vide)
+ */
+public class TaskBenchmark {
+    private static final int[] ROW_COUNTS = { 1_000, 10_000, 100_000, 1_000_000 };
+    private static final int[] HOT_PATH_COUNTS = { 1_000, 100_000, 1_000_000 };
+    // Durées d'échauffement et de mesure de chaque opération du scénario hotpaths
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+    private static final int MIN_ITERATIONS = 5;
+    private static final int MAX_ITERATIONS = 100_000;
+
+    // Résultats consommés pour que le compilateur ne supprime pas le travail mesuré
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        String scenario = args.length > 0 ? args[0] : "scroll";
+        switch (scenario) {
+            case "scroll":
+                scrollPaint();
+                break;
+            case "concurrent":
+                concurrentStress();
+                break;
+            case "memory":
+                heapFootprint();
+                break;
+            case "storage":
+                storageModes(args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000);
+                break;
+            case "hotpaths": {
+                int[] counts = HOT_PATH_COUNTS;
+                if (args.length > 1) {
+                    counts = new int[args.length - 1];
+                    for (int i = 1; i < args.length; i++) {
+                        counts[i - 1] = Integer.parseInt(args[i]);
+                    }
+                }
+                hotPaths(counts);
+                break;
+            }
+            case "streaming":
+                streaming(args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000);
+                break;
+            case "queries":
+                queries(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            case "bulk":
+                bulk(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000,
+                        args.length > 2 ? Integer.parseInt(args[2]) : 100_000);
+                break;
+            case "history":
+                history(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000,
+                        args.length > 2 ? Integer.parseInt(args[2]) : 10_000);
+                break;
+            default:
+                System.err.println("Scénario inconnu: " + scenario);
+                System.exit(1);
+        }
+    }
+
+    /**
+     * Dessine des pages de la table à des positions de défilement aléatoires, sur l'EDT, et
+     * affiche le temps moyen par page ainsi que les octets alloués par page ; puis le délai
+     * moyen entre un saut à une position au hasard et l'arrivée de ses lignes décodées. Les
+     * deux doivent rester plats quand le nombre de lignes augmente : seules les pages visibles
+     * sont décodées, en arrière-plan.
+     */
+    private static void scrollPaint() throws Exception {
+        final int width = 620;
+        final int viewportHeight = 800;
+        final int frames = 500;
+        final int jumps = 100;
+        BufferedImage image = new BufferedImage(width, viewportHeight, BufferedImage.TYPE_INT_ARGB);
+
+        System.out.printf("%10s %14s %16s %18s%n", "lignes", "ms/page", "octets/page", "ms jusqu'aux lignes");
+        for (int rowCount : ROW_COUNTS) {
+            TaskManager manager = createTasks(rowCount);
+            TaskTableModel model = new TaskTableModel(manager);
+            JTable[] holder = new JTable[1];
+            SwingUtilities.invokeAndWait(() -> {
+                JTable table = new JTable(model);
+                table.setRowHeight(40);
+                table.setDefaultRenderer(Object.class, new TaskGUI.ModernTaskTableCellRenderer());
+                table.setSize(width, rowCount * table.getRowHeight());
+                table.doLayout();
+                holder[0] = table;
+            });
+            JTable table = holder[0];
+
+            Random random = new Random(42);
+            int maxY = Math.max(0, table.getHeight() - viewportHeight);
+            long[] measured = new long[2];
+            SwingUtilities.invokeAndWait(() -> {
+                paintFrames(table, image, random, maxY, frames); // préchauffage
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+                paintFrames(table, image, random, maxY, frames);
+                measured[0] = System.nanoTime() - start;
+                measured[1] = allocatedBytes() - allocatedBefore;
+            });
+
+            long waited = 0;
+            for (int i = 0; i < jumps; i++) {
+                int y = maxY == 0 ? 0 : random.nextInt(maxY);
+                int row = y / table.getRowHeight();
+                long start = System.nanoTime();
+                SwingUtilities.invokeAndWait(() -> paintAt(table, image, y));
+                Object[] value = new Object[1];
+                while (value[0] == null) {
+                    SwingUtilities.invokeAndWait(() -> value[0] = model.getValueAt(row, TaskTableModel.TITLE_COLUMN));
+                }
+                waited += System.nanoTime() - start;
+            }
+
+            System.out.printf("%10d %14.3f %16d %18.3f%n", rowCount, measured[0] / 1e6 / frames, measured[1] / frames,
+                    waited / 1e6 / jumps);
+        }
+    }
+
+    private static void paintFrames(JTable table, BufferedImage image, Random random, int maxY, int frames) {
+        for (int i = 0; i < frames; i++) {
+            paintAt(table, image, maxY == 0 ? 0 : random.nextInt(maxY));
+        }
+    }
+
+    private static void paintAt(JTable table, BufferedImage image, int y) {
+        Graphics2D g = image.createGraphics();
+        g.translate(0, -y);
+        g.setClip(0, y, image.getWidth(), image.getHeight());
+        table.paint(g);
+        g.dispose();
+    }
+
+    /**
+     * Chaque thread ajoute, modifie, termine et supprime ses propres tâches en mélangeant
+     * lectures, recherches et changements d'ordre. Pendant l'exécution, chaque thread doit
+     * relire sa dernière écriture et chaque instantané doit être trié sans doublon ; à la
+     * fin, le gestionnaire doit contenir exactement les tâches attendues de chaque thread.
+     */
+    private static void concurrentStress() throws InterruptedException {
+        final int threadCount = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        final long durationNanos = 5_000_000_000L;
+        TaskManager manager = createTasks(10_000);
+        Map<Long, Task> initial = new HashMap<>();
+        for (Task task : manager.getAllTasks()) {
+            initial.put(task.getId(), task);
+        }
+
+        AtomicLong operations = new AtomicLong();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Set<Long> allocatedIds = ConcurrentHashMap.newKeySet();
+        List<Map<Long, Task>> owned = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < threadCount; t++) {
+            final int worker = t;
+            Map<Long, Task> mine = new HashMap<>();
+            owned.add(mine);
+            Thread thread = new Thread(() -> {
+                Random random = new Random(worker);
+                List<Long> ids = new ArrayList<>();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long deadline = System.nanoTime() + durationNanos;
+                long done = 0;
+                while (System.nanoTime() < deadline && failure.get() == null) {
+                    int op = random.nextInt(100);
+                    if (op < 30 || ids.isEmpty()) {
+                        Task task = new Task("w" + worker + "-" + done, "stress", random.nextBoolean() ? null
+                                : LocalDate.of(2026, 1, 1).plusDays(random.nextInt(365)), Task.STATUS_IN_PROGRESS);
+                        long id = manager.addTask(task);
+                        if (!allocatedIds.add(id)) {
+                            failure.compareAndSet(null, "identifiant attribué deux fois: " + id);
+                        }
+                        ids.add(id);
+                        mine.put(id, task);
+                    } else if (op < 45) {
+                        long id = ids.get(random.nextInt(ids.size()));
+                        Task task = new Task("w" + worker + "-u" + done, "stress", null, Task.STATUS_IN_PROGRESS);
+                        check(failure, manager.updateTaskById(id, task), "modification perdue");
+                        mine.put(id, task);
+                    } else if (op < 55) {
+                        long id = ids.remove(random.nextInt(ids.size()));
+                        check(failure, manager.deleteTaskById(id), "suppression perdue");
+                        mine.remove(id);
+                    } else if (op < 62) {
+                        long id = ids.get(random.nextInt(ids.size()));
+                        check(failure, manager.markAsCompletedById(id), "tâche introuvable");
+                        mine.put(id, manager.getTaskById(id));
+                    } else if (op < 64) {
+                        if (random.nextBoolean()) {
+                            manager.sortByDate();
+                        } else {
+                            manager.sortByStatus();
+                        }
+                    } else if (op < 70) {
+                        manager.searchTasks("w" + worker);
+                    } else if (op < 72) {
+                        checkSnapshot(failure, manager.getAllTasks());
+                    } else {
+                        // Lire sa propre dernière écriture
+                        long id = ids.get(random.nextInt(ids.size()));
+                        Task task = manager.getTaskById(id);
+                        check(failure, task != null && task.getTitle().equals(mine.get(id).getTitle())
+                                && task.getStatus().equals(mine.get(id).getStatus()), "lecture périmée de " + id);
+                        int index = manager.indexOfTask(id);
+                        Task atIndex = manager.getTask(index);
+                        check(failure, index >= 0 && atIndex != null, "position introuvable pour " + id);
+                    }
+                    done++;
+                }
+                operations.addAndGet(done);
+            }, "stress-" + t);
+            threads.add(thread);
+            thread.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        // État final : les tâches initiales plus la dernière version de chaque tâche de chaque thread
+        Map<Long, Task> expected = new HashMap<>(initial);
+        for (Map<Long, Task> mine : owned) {
+            expected.putAll(mine);
+        }
+        check(failure, manager.getTaskCount() == expected.size(),
+                "nombre de tâches " + manager.getTaskCount() + " au lieu de " + expected.size());
+        for (Map.Entry<Long, Task> entry : expected.entrySet()) {
+            Task task = manager.getTaskById(entry.getKey());
+            check(failure, task != null && task.getTitle().equals(entry.getValue().getTitle()),
+                    "tâche " + entry.getKey() + " incorrecte");
+        }
+        for (int i = 0; i < 3; i++) {
+            checkSnapshot(failure, manager.getAllTasks());
+            manager.sortByDate();
+            checkSnapshot(failure, manager.getAllTasks());
+            manager.sortByStatus();
+        }
+
+        System.out.printf("%d threads, %,d opérations en %.1f s (%,.0f op/s), %,d tâches à la fin%n",
+                threadCount, operations.get(), elapsed / 1e9, operations.get() / (elapsed / 1e9),
+                manager.getTaskCount());
+        if (failure.get() != null) {
+            System.out.println("ÉCHEC: " + failure.get());
+            System.exit(1);
+        }
+        System.out.println("OK: état final et instantanés cohérents");
+    }
+
+    private static void check(AtomicReference<String> failure, boolean condition, String message) {
+        if (!condition) {
+            failure.compareAndSet(null, message);
+        }
+    }
+
+    // Un instantané doit être trié selon l'un des ordres, sans doublon ni tâche sans identifiant
+    private static void checkSnapshot(AtomicReference<String> failure, List<Task> snapshot) {
+        Set<Long> seen = new HashSet<>();
+        Comparator<Task> byId = Comparator.comparingLong(Task::getId);
+        Comparator<Task> byDate = Comparator.comparing(Task::getDueDate,
+                Comparator.nullsLast(Comparator.<LocalDate>naturalOrder())).thenComparing(byId);
+        Comparator<Task> byStatus = Comparator.comparing(Task::getStatus).thenComparing(byId);
+        boolean sortedById = true;
+        boolean sortedByDate = true;
+        boolean sortedByStatus = true;
+        Task previous = null;
+        for (Task task : snapshot) {
+            check(failure, task.getId() > 0 && seen.add(task.getId()), "doublon dans un instantané: " + task.getId());
+            if (previous != null) {
+                sortedById &= byId.compare(previous, task) < 0;
+                sortedByDate &= byDate.compare(previous, task) < 0;
+                sortedByStatus &= byStatus.compare(previous, task) < 0;
+            }
+            previous = task;
+        }
+        check(failure, seen.size() == snapshot.size(), "taille d'instantané incohérente");
+        check(failure, sortedById || sortedByDate || sortedByStatus, "instantané non trié");
+    }
+
+    /**
+     * Tâche telle qu'elle était représentée avant le passage à Task immuable et compacte :
+     * statut en chaîne, échéance en LocalDate, cache de date formatée. Sert uniquement de
+     * point de comparaison pour le scénario memory.
+     */
+    private static final class LegacyTask {
+        String title;
+        String description;
+        LocalDate dueDate;
+        String status;
+        String formattedDate;
+        long id;
+
+        LegacyTask(String title, String description, LocalDate dueDate, String status) {
+            this.title = title;
+            this.description = description;
+            this.dueDate = dueDate;
+            this.status = status;
+        }
+
+        static LegacyTask fromString(String line) {
+            String[] parts = line.split("\\|");
+            LocalDate date = parts[2].isEmpty() ? null : LocalDate.parse(parts[2]);
+            return new LegacyTask(parts[0], parts[1], date, parts[3]);
+        }
+    }
+
+    /**
+     * Tas occupé par un million de tâches lues depuis des lignes du fichier texte (chaque
+     * tâche reçoit donc ses propres chaînes, comme au chargement), avec l'ancienne
+     * représentation puis l'actuelle. Les octets par tâche incluent titre et description.
+     */
+    private static void heapFootprint() {
+        final int count = 1_000_000;
+        LocalDate start = LocalDate.of(2026, 1, 1);
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = "Tâche " + i + "|Description de la tâche " + i + "|"
+                    + (i % 5 == 0 ? "" : start.plusDays(i % 365).toString()) + "|"
+                    + (i % 3 == 0 ? Task.STATUS_COMPLETED : Task.STATUS_IN_PROGRESS);
+        }
+
+        System.out.printf("%-12s %16s %14s%n", "format", "octets/tâche", "Mo au total");
+        long base = usedHeap();
+        Object[] legacy = new Object[count];
+        for (int i = 0; i < count; i++) {
+            legacy[i] = LegacyTask.fromString(lines[i]);
+        }
+        long legacyBytes = usedHeap() - base;
+        System.out.printf("%-12s %16.1f %14.1f%n", "ancienne", (double) legacyBytes / count, legacyBytes / 1e6);
+        legacy = null;
+
+        base = usedHeap();
+        Object[] compact = new Object[count];
+        for (int i = 0; i < count; i++) {
+            compact[i] = Task.fromString(lines[i]);
+        }
+        long compactBytes = usedHeap() - base;
+        System.out.printf("%-12s %16.1f %14.1f%n", "actuelle", (double) compactBytes / count, compactBytes / 1e6);
+        if (compact[count - 1] == null || lines.length != count) {
+            System.exit(1); // garde les tableaux vivants jusqu'à la mesure
+        }
+    }
+
+    /**
+     * Compare les deux rangements sur un même snapshot. Le temps d'un System.gc() complet
+     * donne l'ordre de grandeur des pauses du ramasse-miettes : il croît avec le nombre
+     * d'objets vivants, qui reste faible en colonnes. Le travail mesuré ensuite (modifications
+     * et lectures aléatoires) rapporte le temps passé dans le ramasse-miettes.
+     */
+    private static void storageModes(int count) throws Exception {
+        requireEmptyDirectory();
+        BinaryTaskSnapshot.write(java.nio.file.Paths.get("tasks.bin"), generatedTasks(count), 0, 0, count, null);
+
+        System.out.printf("%,d tâches%n%-9s %10s %10s %10s %12s %10s %12s%n", count, "rangement", "charg. ms",
+                "tas Mo", "gc() ms", "travail GC", "tri ms", "recherche ms");
+        for (TaskManager.Storage storage : TaskManager.Storage.values()) {
+            TaskManager manager = new TaskManager(storage);
+            long begin = System.nanoTime();
+            manager.loadFromFile();
+            long loadMs = (System.nanoTime() - begin) / 1_000_000;
+
+            begin = System.nanoTime();
+            manager.sortByDate();
+            manager.getTask(count / 2);
+            long sortMs = (System.nanoTime() - begin) / 1_000_000;
+
+            begin = System.nanoTime();
+            int found = manager.searchTasks("tâche 12345").size();
+            long searchMs = (System.nanoTime() - begin) / 1_000_000;
+
+            long heap = usedHeap();
+            begin = System.nanoTime();
+            System.gc();
+            long fullGcMs = (System.nanoTime() - begin) / 1_000_000;
+
+            long gcBefore = gcMillis();
+            Random random = new Random(1);
+            for (int i = 0; i < 200_000; i++) {
+                long id = 1 + random.nextInt(count);
+                if (i % 4 == 0) {
+                    manager.updateTaskById(id, new Task("Modifiée " + i, "", null, Task.STATUS_IN_PROGRESS));
+                } else {
+                    Task task = manager.getTask(random.nextInt(manager.getTaskCount()));
+                    found += task.getTitle().length() > 0 ? 0 : 1;
+                }
+            }
+            long workGcMs = gcMillis() - gcBefore;
+
+            System.out.printf("%-9s %10d %10.0f %10d %9d ms %10d %12d%n", storage, loadMs, heap / 1e6, fullGcMs,
+                    workGcMs, sortMs, searchMs);
+            if (found < 0) {
+                System.exit(1);
+            }
+        }
+        java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get("tasks.bin"));
+    }
+
+    /**
+     * Mesure chaque chemin critique pour chaque nombre de tâches et chaque rangement.
+     * Une opération est répétée pendant WARMUP_NANOS sans être comptée (compilation JIT),
+     * puis pendant MEASURE_NANOS ; chaque répétition est chronométrée pour les percentiles.
+     */
+    private static void hotPaths(int[] counts) throws Exception {
+        requireEmptyDirectory();
+        java.nio.file.Path file = java.nio.file.Paths.get("tasks.bin");
+        System.out.printf("%-34s %12s %12s %12s %12s %14s%n", "opération", "op/s", "moy. µs", "p50 µs",
+                "p99 µs", "octets/op");
+
+        List<String> lines = new ArrayList<>();
+        for (Task task : generatedTasks(1_000)) {
+            lines.add(task.toString());
+        }
+        measure("Task.fromString x1000", () -> {
+            long total = 0;
+            for (String line : lines) {
+                total += Task.fromString(line).getDueEpochDay();
+            }
+            return total;
+        });
+        List<Task> parsed = new ArrayList<>();
+        for (String line : lines) {
+            parsed.add(Task.fromString(line));
+        }
+        measure("Task.toString x1000", () -> {
+            long total = 0;
+            for (Task task : parsed) {
+                total += task.toString().length();
+            }
+            return total;
+        });
+
+        // Coût de l'instrumentation ajoutée à chaque opération du gestionnaire
+        measure("TaskMetrics.record x1000", () -> {
+            for (int i = 0; i < 1_000; i++) {
+                TaskMetrics.REFRESH_TABLE.record(System.nanoTime(), TaskMetrics.allocatedBytes());
+            }
+            return TaskMetrics.REFRESH_TABLE.getCount();
+        });
+        TaskMetrics.REFRESH_TABLE.reset();
+
+        for (int count : counts) {
+            BinaryTaskSnapshot.write(file, generatedTasks(count), 0, 0, count, null);
+            System.out.printf("%n%,d tâches, fichier de %.1f Mo%n", count, java.nio.file.Files.size(file) / 1e6);
+            for (TaskManager.Storage storage : TaskManager.Storage.values()) {
+                String prefix = storage + " ";
+                measure(prefix + "loadFromFile", () -> {
+                    TaskManager loaded = new TaskManager(storage);
+                    loaded.loadFromFile();
+                    return loaded.getTaskCount();
+                });
+                TaskManager manager = new TaskManager(storage);
+                manager.loadFromFile();
+
+                // Le premier tri construit la vue ; les suivants ne font que changer d'ordre
+                measure(prefix + "premier sortByDate", () -> {
+                    TaskManager fresh = new TaskManager(storage);
+                    fresh.loadFromFile();
+                    long begin = System.nanoTime();
+                    fresh.sortByDate();
+                    fresh.getTask(0);
+                    return System.nanoTime() - begin;
+                }, true);
+                measure(prefix + "sortByDate/sortByStatus", () -> {
+                    manager.sortByDate();
+                    long first = manager.getTask(count / 2).getId();
+                    manager.sortByStatus();
+                    return first + manager.getTask(count / 2).getId();
+                });
+                manager.searchTasks("préchauffage de l'index");
+                for (String query : new String[] { "tâche 12345", "tâche 12", "tâche" }) {
+                    int results = manager.searchTasks(query).size();
+                    measure(String.format("%ssearch \"%s\" (%.2f %%)", prefix, query, 100.0 * results / count),
+                            () -> manager.searchTasks(query).size());
+                }
+                measure(prefix + "saveToFile", () -> {
+                    manager.saveToFile();
+                    return manager.getTaskCount();
+                });
+            }
+        }
+        java.nio.file.Files.deleteIfExists(file);
+    }
+
+    // Opération mesurée ; son résultat est consommé (ou, si elle se chronomètre, sa durée en ns)
+    private interface MeasuredOperation {
+        long run() throws Exception;
+    }
+
+    private static void measure(String name, MeasuredOperation operation) throws Exception {
+        measure(name, operation, false);
+    }
+
+    /**
+     * Échauffe puis mesure une opération. Si selfTimed, l'opération renvoie elle-même la durée
+     * de sa partie mesurée (sa préparation est alors exclue du temps, pas des allocations).
+     */
+    private static void measure(String name, MeasuredOperation operation, boolean selfTimed)
+            throws Exception {
+        long end = System.nanoTime() + WARMUP_NANOS;
+        for (int i = 0; i < MIN_ITERATIONS || System.nanoTime() < end; i++) {
+            sink += operation.run();
+        }
+
+        long[] latencies = new long[MAX_ITERATIONS];
+        int iterations = 0;
+        long allocatedBefore = allocatedBytes();
+        end = System.nanoTime() + MEASURE_NANOS;
+        while (iterations < MAX_ITERATIONS && (iterations < MIN_ITERATIONS || System.nanoTime() < end)) {
+            long begin = System.nanoTime();
+            long result = operation.run();
+            latencies[iterations++] = selfTimed ? result : System.nanoTime() - begin;
+            sink += result;
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        long total = 0;
+        for (int i = 0; i < iterations; i++) {
+            total += latencies[i];
+        }
+        long[] sorted = java.util.Arrays.copyOf(latencies, iterations);
+        java.util.Arrays.sort(sorted);
+        System.out.printf("%-34s %12.1f %12.1f %12.1f %12.1f %14d%n", name, iterations / (total / 1e9),
+                total / 1e3 / iterations, sorted[iterations / 2] / 1e3,
+                sorted[Math.min(iterations - 1, (int) (iterations * 0.99))] / 1e3, allocated / iterations);
+    }
+
+    /**
+     * Exporte n tâches sans les garder en mémoire, puis relit le fichier et le réécrit par
+     * éditeur et abonné Flow (lots de 1 024) : la copie doit être identique à l'original.
+     */
+    private static void streaming(int count) throws Exception {
+        System.out.printf("%-8s %12s %14s %14s %12s%n", "format", "Mo", "export t/s", "copie t/s", "tas max Mo");
+        for (TaskExchange.Format format : TaskExchange.Format.values()) {
+            String extension = format == TaskExchange.Format.PIPE ? "txt" : format.name().toLowerCase();
+            java.nio.file.Path source = java.nio.file.Paths.get("export." + extension);
+            java.nio.file.Path copy = java.nio.file.Paths.get("copy." + extension);
+            java.lang.management.MemoryPoolMXBean[] pools = ManagementFactory.getMemoryPoolMXBeans()
+                    .toArray(new java.lang.management.MemoryPoolMXBean[0]);
+            for (java.lang.management.MemoryPoolMXBean pool : pools) {
+                pool.resetPeakUsage();
+            }
+
+            long start = System.nanoTime();
+            try (java.io.Writer out = java.nio.file.Files.newBufferedWriter(source)) {
+                TaskExchange.write(generatedTasks(count).iterator(), out, format);
+            }
+            long exportNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long copied;
+            try (TaskExchange.TaskWriter writer = TaskExchange.writer(java.nio.file.Files.newBufferedWriter(copy),
+                    format)) {
+                TaskExchange.SinkSubscriber subscriber = TaskExchange.subscriber(writer, 1024);
+                TaskExchange.publisher(source, format, java.util.concurrent.ForkJoinPool.commonPool())
+                        .subscribe(subscriber);
+                copied = subscriber.completion().get();
+            }
+            long copyNanos = System.nanoTime() - start;
+
+            long peakHeap = 0;
+            for (java.lang.management.MemoryPoolMXBean pool : pools) {
+                if (pool.getType() == java.lang.management.MemoryType.HEAP && pool.getPeakUsage() != null) {
+                    peakHeap += pool.getPeakUsage().getUsed();
+                }
+            }
+            boolean identical = copied == count && java.nio.file.Files.mismatch(source, copy) == -1;
+            System.out.printf("%-8s %12.1f %14.0f %14.0f %12.1f%s%n", format,
+                    java.nio.file.Files.size(source) / 1e6, count / (exportNanos / 1e9), count / (copyNanos / 1e9),
+                    peakHeap / 1e6, identical ? "" : "  ÉCHEC : copie différente (" + copied + " tâches)");
+            if (!identical) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Chaque requête est lancée une première fois (construction éventuelle d'une vue), puis
+     * mesurée : délai de la première page de la table, temps jusqu'au dernier résultat, et
+     * temps d'un filtrage de toutes les tâches par TaskQuery.test pour comparaison.
+     */
+    private static void queries(int count) throws Exception {
+        requireEmptyDirectory();
+        BinaryTaskSnapshot.write(java.nio.file.Paths.get("tasks.bin"), generatedTasks(count), 0, 0, count, null);
+        String[] queries = { "status:Terminé", "due:2026-03-15", "due>=2026-12-20 status:\"En cours\"",
+                "title~\"tâche 12345\" due<2026-06-01", "status:Terminé sort:-due limit:100",
+                "due:none OR title~999999", "NOT status:Terminé sort:title limit:20",
+                "status:Terminé title~\"tâche 1234\"" };
+        final int repetitions = 5;
+
+        System.out.printf("%,d tâches%n", count);
+        for (TaskManager.Storage storage : TaskManager.Storage.values()) {
+            TaskManager manager = new TaskManager(storage);
+            manager.loadFromFile();
+            System.out.printf("%n%s%n%-52s %10s %12s %10s %10s  %s%n", storage, "requête", "résultats",
+                    "1re page ms", "total ms", "filtre ms", "plan");
+            for (String text : queries) {
+                TaskQuery query = TaskQuery.parse(text);
+                manager.query(query).toList();
+                long firstPage = 0;
+                long total = 0;
+                int results = 0;
+                String plan = null;
+                for (int i = 0; i < repetitions; i++) {
+                    long begin = System.nanoTime();
+                    TaskQuery.Cursor cursor = manager.query(query);
+                    results = cursor.nextPage(TaskTableModel.PAGE_SIZE).size();
+                    firstPage += System.nanoTime() - begin;
+                    results += cursor.toList().size();
+                    total += System.nanoTime() - begin;
+                    plan = cursor.getPlan();
+                }
+
+                long begin = System.nanoTime();
+                long expected = 0;
+                for (int i = 0; i < repetitions; i++) {
+                    expected = manager.stream().filter(query::test).count();
+                }
+                long filter = System.nanoTime() - begin;
+                if (query.getLimit() >= 0) {
+                    expected = Math.min(expected, query.getLimit());
+                }
+                System.out.printf("%-52s %10d %12.2f %10.2f %10.2f  %s%s%n", text, results,
+                        firstPage / 1e6 / repetitions, total / 1e6 / repetitions, filter / 1e6 / repetitions, plan,
+                        results == expected ? "" : "  ÉCHEC : " + expected + " attendus");
+                if (results != expected) {
+                    System.exit(1);
+                }
+            }
+
+            // Compteurs de l'en-tête de la table, contre un parcours de toutes les tâches
+            LocalDate today = LocalDate.of(2026, 6, 1);
+            manager.countOverdue(today);
+            long begin = System.nanoTime();
+            int counted = 0;
+            for (int i = 0; i < 1000; i++) {
+                counted += manager.countsByStatus().size() + manager.countOverdue(today);
+            }
+            long countNanos = (System.nanoTime() - begin) / 1000;
+            begin = System.nanoTime();
+            int completed = 0;
+            int overdue = 0;
+            for (Task task : manager.getAllTasks()) {
+                completed += task.isCompleted() ? 1 : 0;
+                overdue += TaskStatusIndex.isOverdue(task, Task.toEpochDay(today)) ? 1 : 0;
+            }
+            long scanNanos = System.nanoTime() - begin;
+            boolean same = completed == manager.countByStatus(Task.STATUS_COMPLETED)
+                    && overdue == manager.countOverdue(today);
+            sink += counted;
+            System.out.printf("comptages par statut et en retard : %.1f µs (parcours : %.1f ms)%s%n", countNanos / 1e3,
+                    scanNanos / 1e6, same ? "" : "  ÉCHEC : comptages différents du parcours");
+            if (!same) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void bulk(int count, int selected) throws Exception {
+        requireEmptyDirectory();
+        java.nio.file.Path snapshot = java.nio.file.Paths.get("tasks.bin");
+        java.nio.file.Path journal = java.nio.file.Paths.get("tasks.journal");
+        // Sélection répartie sur toute la liste, comme une sélection par intervalles dans la table ;
+        // l'échauffement porte sur une autre sélection de même taille
+        long[] ids = new long[selected];
+        long[] warmup = new long[selected];
+        for (int i = 0; i < selected; i++) {
+            ids[i] = 1 + (long) i * count / selected;
+            warmup[i] = ids[i] + 1;
+        }
+        // Tâche par tâche sur un dixième de la sélection, puis extrapolé
+        long[] sample = java.util.Arrays.copyOf(ids, Math.max(1, selected / 10));
+        double scale = (double) selected / sample.length;
+        List<Task> added = new ArrayList<>(generatedTasks(selected));
+
+        System.out.printf("%,d tâches sélectionnées sur %,d%n", selected, count);
+        for (TaskManager.Storage storage : TaskManager.Storage.values()) {
+            java.nio.file.Files.deleteIfExists(journal);
+            BinaryTaskSnapshot.write(snapshot, generatedTasks(count), 0, 0, count, null);
+            TaskManager manager = new TaskManager(storage);
+            manager.openJournal();
+            manager.sortByStatus();
+            manager.getAllTasks();
+            manager.sortByDate();
+            manager.getAllTasks();
+
+            System.out.printf("%n%s%n%-24s %12s %18s%n", storage, "opération", "lot ms", "une par une ms");
+            manager.completeTasksById(warmup);
+            long batch = timedBatch(manager, () -> manager.completeTasksById(ids));
+            long single = timedBatch(manager, () -> {
+                for (long id : sample) {
+                    manager.markAsCompletedById(id);
+                }
+            });
+            printBulk("terminer", batch, single * scale);
+
+            manager.setStatusById(warmup, Task.STATUS_IN_PROGRESS);
+            batch = timedBatch(manager, () -> manager.setStatusById(ids, Task.STATUS_IN_PROGRESS));
+            single = timedBatch(manager, () -> {
+                for (long id : sample) {
+                    manager.updateTaskById(id, manager.getTaskById(id).withStatus(Task.STATUS_IN_PROGRESS));
+                }
+            });
+            printBulk("changer le statut", batch, single * scale);
+
+            manager.deleteTasksById(warmup);
+            batch = timedBatch(manager, () -> manager.deleteTasksById(ids));
+            printBulk("supprimer", batch, Double.NaN);
+
+            manager.addTasks(added);
+            batch = timedBatch(manager, () -> manager.addTasks(added));
+            single = timedBatch(manager, () -> {
+                for (int i = 0; i < sample.length; i++) {
+                    manager.addTask(added.get(i));
+                }
+            });
+            printBulk("ajouter", batch, single * scale);
+
+            // Deux sélections supprimées, deux lots ajoutés, plus les ajouts un par un
+            int expectedCount = count + sample.length;
+            int completed = (int) manager.stream().filter(Task::isCompleted).count();
+            manager.closeJournal();
+            TaskManager reloaded = new TaskManager(storage);
+            long begin = System.nanoTime();
+            reloaded.openJournal();
+            long reload = System.nanoTime() - begin;
+            boolean same = manager.getTaskCount() == expectedCount && reloaded.getTaskCount() == expectedCount
+                    && manager.countByStatus(Task.STATUS_COMPLETED) == completed
+                    && reloaded.countByStatus(Task.STATUS_COMPLETED) == completed;
+            System.out.printf("rechargement avec le journal : %.1f ms%s%n", reload / 1e6,
+                    same ? "" : "  ÉCHEC : comptages différents après les lots ou le rechargement");
+            reloaded.closeJournal();
+            if (!same) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Historique d'annulation : chaque modification garde deux états qui partagent tout sauf
+     * les chemins recopiés avec leurs voisins, le tas retenu doit donc croître en O(log n) par
+     * modification et non en O(n) comme une copie de la liste à chaque version.
+     */
+    private static void history(int count, int edits) throws Exception {
+        requireEmptyDirectory();
+        BinaryTaskSnapshot.write(java.nio.file.Paths.get("tasks.bin"), generatedTasks(count), 0, 0, count, null);
+        Random random = new Random(42);
+        long[] ids = new long[edits];
+        for (int i = 0; i < edits; i++) {
+            ids[i] = 1 + random.nextInt(count);
+        }
+        System.out.printf("%,d modifications sur %,d tâches ; copie de la liste : au moins %,d octets%n", edits, count,
+                4L * count);
+        System.out.printf("%n%-10s %14s %10s %10s%n", "rangement", "octets/modif", "undo ms", "redo ms");
+        for (TaskManager.Storage storage : TaskManager.Storage.values()) {
+            TaskManager manager = new TaskManager(storage);
+            manager.loadFromFile();
+            manager.setUndoLimit(edits);
+            manager.sortByStatus();
+            manager.getAllTasks();
+            manager.sortByDate();
+            manager.getAllTasks();
+            List<Task> original = new ArrayList<>(manager.getAllTasks());
+
+            long before = usedHeap();
+            for (int i = 0; i < edits; i++) {
+                Task task = manager.getTaskById(ids[i]);
+                manager.updateTaskById(ids[i], new Task(task.getTitle() + " (modifiée)", task.getDescription(),
+                        task.getDueDate(), i % 2 == 0 ? Task.STATUS_COMPLETED : "Bloquée"));
+            }
+            long retained = usedHeap() - before;
+            List<Task> edited = new ArrayList<>(manager.getAllTasks());
+
+            long begin = System.nanoTime();
+            while (manager.undo()) {
+                sink++;
+            }
+            long undo = System.nanoTime() - begin;
+            boolean same = sameTasks(original, manager.getAllTasks());
+            begin = System.nanoTime();
+            while (manager.redo()) {
+                sink++;
+            }
+            long redo = System.nanoTime() - begin;
+            same &= sameTasks(edited, manager.getAllTasks());
+            System.out.printf("%-10s %,14d %10.1f %10.1f%s%n", storage, retained / edits, undo / 1e6, redo / 1e6,
+                    same ? "" : "  ÉCHEC : contenu différent après undo ou redo");
+            if (!same) {
+                System.exit(1);
+            }
+        }
+
+        // Ajout annulé puis rétabli avant d'avoir été écrit : seul l'enregistrement d'annulation
+        // le porte, et le rejeu doit relever le dernier identifiant au-dessus du sien
+        TaskManager manager = new TaskManager();
+        manager.openJournal();
+        manager.setAutosave(60_000, Integer.MAX_VALUE);
+        long restored = manager.addTask(new Task("Ajout rétabli", "", null, Task.STATUS_IN_PROGRESS));
+        manager.undo();
+        manager.redo();
+        manager.closeJournal();
+        boolean replayed = true;
+        for (int reopen = 0; reopen < 2; reopen++) {
+            TaskManager reloaded = new TaskManager();
+            reloaded.openJournal();
+            long added = reloaded.addTasks(List.of(new Task("Après rechargement", "", null, Task.STATUS_IN_PROGRESS)));
+            replayed &= added > restored && reloaded.getTaskById(restored) != null
+                    && reloaded.getTaskCount() == count + 2 + reopen;
+            reloaded.closeJournal();
+        }
+        System.out.printf("%nrejeu d'un ajout annulé puis rétabli : %s%n",
+                replayed ? "identifiants uniques" : "ÉCHEC : identifiant réattribué");
+        if (!replayed) {
+            System.exit(1);
+        }
+    }
+
+    // Mêmes tâches dans le même ordre (identifiant et contenu)
+    private static boolean sameTasks(List<Task> expected, List<Task> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            Task a = expected.get(i);
+            Task b = actual.get(i);
+            if (a.getId() != b.getId() || !a.toString().equals(b.toString())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Durée de l'opération, journal déjà écrit : le compactage qui suit un gros lot tourne
+     * sur le thread du journal et ne doit pas être compté dans la mesure suivante.
+     */
+    private static long timedBatch(TaskManager manager, Runnable operation) throws java.io.IOException {
+        manager.saveToFile();
+        long begin = System.nanoTime();
+        operation.run();
+        return System.nanoTime() - begin;
+    }
+
+    private static void printBulk(String name, long batchNanos, double singleNanos) {
+        System.out.printf("%-24s %12.1f %18s%n", name, batchNanos / 1e6,
+                Double.isNaN(singleNanos) ? "-" : String.format("%.1f", singleNanos / 1e6));
+    }
+
+    private static void requireEmptyDirectory() {
+        if (new java.io.File("tasks.bin").exists() || new java.io.File("tasks.journal").exists()) {
+            System.err.println("Lancer dans un répertoire sans tasks.bin ni tasks.journal");
+            System.exit(1);
+        }
+    }
+
+    // Tâches générées à la demande (identifiants 1..count), pour écrire un snapshot sans les garder
+    static List<Task> generatedTasks(int count) {
+        LocalDate start = LocalDate.of(2026, 1, 1);
+        return new java.util.AbstractList<Task>() {
+            @Override
+            public Task get(int i) {
+                return new Task("Tâche " + i, "Description de la tâche " + i,
+                        i % 5 == 0 ? null : start.plusDays(i % 365),
+                        i % 3 == 0 ? Task.STATUS_COMPLETED : Task.STATUS_IN_PROGRESS).withId(i + 1);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    // Temps cumulé passé dans le ramasse-miettes depuis le démarrage
+    private static long gcMillis() {
+        long total = 0;
+        for (java.lang.management.GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, bean.getCollectionTime());
+        }
+        return total;
+    }
+
+    // Tas occupé après plusieurs passages du ramasse-miettes
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static TaskManager createTasks(int count) {
+        TaskManager manager = new TaskManager();
+        LocalDate start = LocalDate.of(2026, 1, 1);
+        for (int i = 0; i < count; i++) {
+            manager.addTask(new Task("Tâche " + i, "Description de la tâche " + i,
+                    i % 5 == 0 ? null : start.plusDays(i % 365),
+                    i % 3 == 0 ? Task.STATUS_COMPLETED : Task.STATUS_IN_PROGRESS));
+        }
+        return manager;
+    }
+
+    // Octets alloués par le thread courant (extension HotSpot de ThreadMXBean)
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
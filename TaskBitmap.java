@@ -0,0 +1,556 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Ensemble immuable d'identifiants de tâches, compressé à la manière de Roaring : les
+ * identifiants sont groupés par blocs de 65 536 valeurs, repérés par leurs bits de poids
+ * fort. Un bloc peu rempli garde ses 16 bits de poids faible dans un tableau trié ; au-delà
+ * de ARRAY_MAX valeurs il devient une carte de 65 536 bits (8 Ko), plus petite à ce stade.
+ * La cardinalité est tenue à jour : la lire coûte O(1).
+ *
+ * Ajouter ou retirer un identifiant recopie un seul bloc et la table des blocs : les
+ * versions précédentes restent valides, comme les autres structures des états de TaskManager.
+ */
+public final class TaskBitmap {
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1 << 10;
+    private static final TaskBitmap EMPTY = new TaskBitmap(new long[0], new Container[0], 0);
+
+    private final long[] keys; // bits de poids fort des blocs, croissants
+    private final Container[] containers;
+    private final int cardinality;
+
+    private TaskBitmap(long[] keys, Container[] containers, int cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = cardinality;
+    }
+
+    public static TaskBitmap empty() {
+        return EMPTY;
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(long id) {
+        int index = Arrays.binarySearch(keys, id >>> 16);
+        return index >= 0 && containers[index].contains((int) id & 0xFFFF);
+    }
+
+    public TaskBitmap with(long id) {
+        int index = Arrays.binarySearch(keys, id >>> 16);
+        int low = (int) id & 0xFFFF;
+        if (index >= 0) {
+            Container updated = containers[index].add(low);
+            if (updated == containers[index]) {
+                return this;
+            }
+            Container[] copy = containers.clone();
+            copy[index] = updated;
+            return new TaskBitmap(keys, copy, cardinality + 1);
+        }
+        int insertion = -index - 1;
+        long[] newKeys = new long[keys.length + 1];
+        Container[] newContainers = new Container[containers.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, insertion);
+        System.arraycopy(containers, 0, newContainers, 0, insertion);
+        newKeys[insertion] = id >>> 16;
+        newContainers[insertion] = new ArrayContainer(new char[] { (char) low });
+        System.arraycopy(keys, insertion, newKeys, insertion + 1, keys.length - insertion);
+        System.arraycopy(containers, insertion, newContainers, insertion + 1, containers.length - insertion);
+        return new TaskBitmap(newKeys, newContainers, cardinality + 1);
+    }
+
+    public TaskBitmap without(long id) {
+        int index = Arrays.binarySearch(keys, id >>> 16);
+        if (index < 0) {
+            return this;
+        }
+        Container updated = containers[index].remove((int) id & 0xFFFF);
+        if (updated == containers[index]) {
+            return this;
+        }
+        if (updated != null) {
+            Container[] copy = containers.clone();
+            copy[index] = updated;
+            return new TaskBitmap(keys, copy, cardinality - 1);
+        }
+        if (cardinality == 1) {
+            return EMPTY;
+        }
+        long[] newKeys = new long[keys.length - 1];
+        Container[] newContainers = new Container[containers.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, index);
+        System.arraycopy(containers, 0, newContainers, 0, index);
+        System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+        System.arraycopy(containers, index + 1, newContainers, index, containers.length - index - 1);
+        return new TaskBitmap(newKeys, newContainers, cardinality - 1);
+    }
+
+    // Identifiants présents dans les deux ensembles
+    public TaskBitmap and(TaskBitmap other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        int capacity = Math.min(keys.length, other.keys.length);
+        long[] newKeys = new long[capacity];
+        Container[] newContainers = new Container[capacity];
+        int size = 0;
+        int count = 0;
+        for (int i = 0, j = 0; i < keys.length && j < other.keys.length;) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container both = containers[i].and(other.containers[j]);
+                if (both != null) {
+                    newKeys[size] = keys[i];
+                    newContainers[size++] = both;
+                    count += both.cardinality();
+                }
+                i++;
+                j++;
+            }
+        }
+        return count == 0 ? EMPTY
+                : new TaskBitmap(Arrays.copyOf(newKeys, size), Arrays.copyOf(newContainers, size), count);
+    }
+
+    // Identifiants présents dans l'un ou l'autre
+    public TaskBitmap or(TaskBitmap other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        long[] newKeys = new long[keys.length + other.keys.length];
+        Container[] newContainers = new Container[newKeys.length];
+        int size = 0;
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            Container container;
+            if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                newKeys[size] = keys[i];
+                container = containers[i++];
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                newKeys[size] = other.keys[j];
+                container = other.containers[j++];
+            } else {
+                newKeys[size] = keys[i];
+                container = containers[i++].or(other.containers[j++]);
+            }
+            newContainers[size++] = container;
+            count += container.cardinality();
+        }
+        return new TaskBitmap(Arrays.copyOf(newKeys, size), Arrays.copyOf(newContainers, size), count);
+    }
+
+    // Identifiants de cet ensemble absents de other
+    public TaskBitmap andNot(TaskBitmap other) {
+        if (isEmpty() || other.isEmpty()) {
+            return this;
+        }
+        long[] newKeys = new long[keys.length];
+        Container[] newContainers = new Container[keys.length];
+        int size = 0;
+        int count = 0;
+        int j = 0;
+        for (int i = 0; i < keys.length; i++) {
+            while (j < other.keys.length && other.keys[j] < keys[i]) {
+                j++;
+            }
+            Container kept = j < other.keys.length && other.keys[j] == keys[i]
+                    ? containers[i].andNot(other.containers[j]) : containers[i];
+            if (kept != null) {
+                newKeys[size] = keys[i];
+                newContainers[size++] = kept;
+                count += kept.cardinality();
+            }
+        }
+        return count == 0 ? EMPTY
+                : new TaskBitmap(Arrays.copyOf(newKeys, size), Arrays.copyOf(newContainers, size), count);
+    }
+
+    // Identifiants par ordre croissant
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int block;
+            private int next = containers.length > 0 ? containers[0].nextValue(0) : -1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public long nextLong() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                long id = keys[block] << 16 | next;
+                next = next < 0xFFFF ? containers[block].nextValue(next + 1) : -1;
+                if (next < 0 && ++block < containers.length) {
+                    next = containers[block].nextValue(0);
+                }
+                return id;
+            }
+        };
+    }
+
+    /**
+     * Construit un ensemble à partir d'identifiants donnés par ordre croissant, bloc par bloc,
+     * sans recopie intermédiaire.
+     */
+    public static final class Builder {
+        private long[] keys = new long[4];
+        private Container[] containers = new Container[4];
+        private int size;
+        private int count;
+        private long[] words; // bloc en cours de remplissage
+        private long currentKey = -1;
+        private int currentCount;
+        private long lastId = Long.MIN_VALUE;
+
+        public void add(long id) {
+            if (id <= lastId) {
+                throw new IllegalArgumentException("Identifiants non croissants : " + id + " après " + lastId);
+            }
+            lastId = id;
+            long key = id >>> 16;
+            if (key != currentKey) {
+                flush();
+                currentKey = key;
+                if (words == null) {
+                    words = new long[WORDS];
+                }
+            }
+            int low = (int) id & 0xFFFF;
+            words[low >>> 6] |= 1L << low;
+            currentCount++;
+        }
+
+        public TaskBitmap build() {
+            flush();
+            words = null;
+            return count == 0 ? EMPTY
+                    : new TaskBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size), count);
+        }
+
+        private void flush() {
+            if (currentCount == 0) {
+                return;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                containers = Arrays.copyOf(containers, size * 2);
+            }
+            keys[size] = currentKey;
+            containers[size++] = fromWords(words.clone(), currentCount);
+            count += currentCount;
+            Arrays.fill(words, 0);
+            currentCount = 0;
+        }
+    }
+
+    // Bloc le plus compact pour une carte de bits (null si elle est vide)
+    private static Container fromWords(long[] words, int cardinality) {
+        if (cardinality == 0) {
+            return null;
+        }
+        if (cardinality > ARRAY_MAX) {
+            return new BitmapContainer(words, cardinality);
+        }
+        char[] values = new char[cardinality];
+        int size = 0;
+        for (int i = 0; i < WORDS; i++) {
+            for (long word = words[i]; word != 0; word &= word - 1) {
+                values[size++] = (char) (i << 6 | Long.numberOfTrailingZeros(word));
+            }
+        }
+        return new ArrayContainer(values);
+    }
+
+    // Bloc de 65 536 valeurs ; add et remove rendent this si rien ne change, null si le bloc se vide
+    private abstract static class Container {
+        abstract int cardinality();
+
+        abstract boolean contains(int low);
+
+        abstract Container add(int low);
+
+        abstract Container remove(int low);
+
+        // Plus petite valeur >= from, -1 s'il n'y en a pas
+        abstract int nextValue(int from);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+    }
+
+    // Valeurs triées, tableau exactement à la taille (il est recopié à chaque modification)
+    private static final class ArrayContainer extends Container {
+        final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return Arrays.binarySearch(values, (char) low) >= 0;
+        }
+
+        @Override
+        Container add(int low) {
+            int index = Arrays.binarySearch(values, (char) low);
+            if (index >= 0) {
+                return this;
+            }
+            if (values.length == ARRAY_MAX) {
+                return toBitmap().add(low);
+            }
+            int insertion = -index - 1;
+            char[] copy = new char[values.length + 1];
+            System.arraycopy(values, 0, copy, 0, insertion);
+            copy[insertion] = (char) low;
+            System.arraycopy(values, insertion, copy, insertion + 1, values.length - insertion);
+            return new ArrayContainer(copy);
+        }
+
+        @Override
+        Container remove(int low) {
+            int index = Arrays.binarySearch(values, (char) low);
+            if (index < 0) {
+                return this;
+            }
+            if (values.length == 1) {
+                return null;
+            }
+            char[] copy = new char[values.length - 1];
+            System.arraycopy(values, 0, copy, 0, index);
+            System.arraycopy(values, index + 1, copy, index, copy.length - index);
+            return new ArrayContainer(copy);
+        }
+
+        @Override
+        int nextValue(int from) {
+            int index = Arrays.binarySearch(values, (char) from);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < values.length ? values[index] : -1;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[values.length];
+            int size = 0;
+            if (other instanceof ArrayContainer) {
+                char[] others = ((ArrayContainer) other).values;
+                for (int i = 0, j = 0; i < values.length && j < others.length;) {
+                    if (values[i] < others[j]) {
+                        i++;
+                    } else if (values[i] > others[j]) {
+                        j++;
+                    } else {
+                        result[size++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (char value : values) {
+                    if (other.contains(value)) {
+                        result[size++] = value;
+                    }
+                }
+            }
+            return size == 0 ? null : new ArrayContainer(size == values.length ? result : Arrays.copyOf(result, size));
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            char[] others = ((ArrayContainer) other).values;
+            char[] result = new char[values.length + others.length];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < values.length || j < others.length) {
+                if (j == others.length || (i < values.length && values[i] < others[j])) {
+                    result[size++] = values[i++];
+                } else if (i == values.length || values[i] > others[j]) {
+                    result[size++] = others[j++];
+                } else {
+                    result[size++] = values[i++];
+                    j++;
+                }
+            }
+            if (size > ARRAY_MAX) {
+                long[] words = new long[WORDS];
+                for (int k = 0; k < size; k++) {
+                    words[result[k] >>> 6] |= 1L << result[k];
+                }
+                return new BitmapContainer(words, size);
+            }
+            return new ArrayContainer(Arrays.copyOf(result, size));
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[values.length];
+            int size = 0;
+            for (char value : values) {
+                if (!other.contains(value)) {
+                    result[size++] = value;
+                }
+            }
+            if (size == values.length) {
+                return this;
+            }
+            return size == 0 ? null : new ArrayContainer(Arrays.copyOf(result, size));
+        }
+
+        BitmapContainer toBitmap() {
+            long[] words = new long[WORDS];
+            for (char value : values) {
+                words[value >>> 6] |= 1L << value;
+            }
+            return new BitmapContainer(words, values.length);
+        }
+    }
+
+    // Un bit par valeur ; repasse en tableau dès que la cardinalité le permet
+    private static final class BitmapContainer extends Container {
+        final long[] words;
+        final int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container add(int low) {
+            if (contains(low)) {
+                return this;
+            }
+            long[] copy = words.clone();
+            copy[low >>> 6] |= 1L << low;
+            return new BitmapContainer(copy, cardinality + 1);
+        }
+
+        @Override
+        Container remove(int low) {
+            if (!contains(low)) {
+                return this;
+            }
+            long[] copy = words.clone();
+            copy[low >>> 6] &= ~(1L << low);
+            return fromWords(copy, cardinality - 1);
+        }
+
+        @Override
+        int nextValue(int from) {
+            int index = from >>> 6;
+            long word = words[index] & (-1L << from);
+            while (word == 0) {
+                if (++index == WORDS) {
+                    return -1;
+                }
+                word = words[index];
+            }
+            return index << 6 | Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] others = ((BitmapContainer) other).words;
+            long[] result = new long[WORDS];
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                result[i] = words[i] & others[i];
+                count += Long.bitCount(result[i]);
+            }
+            return fromWords(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayContainer) {
+                int count = cardinality;
+                for (char value : ((ArrayContainer) other).values) {
+                    if ((result[value >>> 6] & (1L << value)) == 0) {
+                        result[value >>> 6] |= 1L << value;
+                        count++;
+                    }
+                }
+                return new BitmapContainer(result, count);
+            }
+            long[] others = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                result[i] |= others[i];
+                count += Long.bitCount(result[i]);
+            }
+            return new BitmapContainer(result, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] result = words.clone();
+            int count = cardinality;
+            if (other instanceof ArrayContainer) {
+                for (char value : ((ArrayContainer) other).values) {
+                    if ((result[value >>> 6] & (1L << value)) != 0) {
+                        result[value >>> 6] &= ~(1L << value);
+                        count--;
+                    }
+                }
+            } else {
+                long[] others = ((BitmapContainer) other).words;
+                count = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    result[i] &= ~others[i];
+                    count += Long.bitCount(result[i]);
+                }
+            }
+            return fromWords(result, count);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tâches chargées rangées hors du tas, en colonnes dans des ByteBuffer directs :
+ * identifiant (long, croissant), échéance (int, jour epoch), statut (short, code de Task)
+ * et position du texte (long) dans un tas de chaînes UTF-8 découpé en blocs.
+ * Immuable une fois construit, donc lisible sans verrou depuis plusieurs threads.
+ *
+ * Le ramasse-miettes ne voit que quelques objets, quel que soit le nombre de lignes :
+ * les tâches ne sont matérialisées (ColumnTask, titre et description décodés à la demande)
+ * qu'au moment où elles sont lues. Les ordres par date et par statut sont des permutations
+ * de lignes calculées par un tri de clés primitives, et la recherche parcourt directement
+ * les octets du texte.
+ */
+public final class TaskColumns {
+    // Taille des blocs du tas de chaînes, doublée à chaque bloc (un texte ne chevauche jamais deux blocs)
+    private static final int FIRST_TEXT_CHUNK_SIZE = 64 << 10;
+    private static final int MAX_TEXT_CHUNK_SIZE = 64 << 20;
+    // Lignes analysées par tâche parallèle lors d'une recherche
+    private static final int SCAN_BATCH = 1 << 16;
+    // Tâches matérialisées récemment, réutilisées tant que la même ligne est redemandée
+    private static final int RECENT_SIZE = 1 << 12;
+    private static final int NO_TEXT = -1;
+
+    private final int rowCount;
+    private final ByteBuffer ids;
+    private final ByteBuffer dueDays;
+    private final ByteBuffer statuses;
+    private final ByteBuffer textOffsets;
+    private final ByteBuffer[] textChunks;
+    private final ColumnTask[] recent = new ColumnTask[RECENT_SIZE];
+    private final Order byId;
+    private Order byDate;   // calculés au premier tri correspondant
+    private Order byStatus;
+
+    /**
+     * Ordre des lignes selon un critère : position → ligne. L'ordre par identifiant est
+     * l'identité et n'occupe aucune mémoire.
+     */
+    public final class Order {
+        private final ByteBuffer rows; // int par position, null pour l'identité
+
+        private Order(ByteBuffer rows) {
+            this.rows = rows;
+        }
+
+        public int size() {
+            return rowCount;
+        }
+
+        public int row(int position) {
+            return rows == null ? position : rows.getInt(position * 4);
+        }
+
+        public long id(int position) {
+            return TaskColumns.this.id(row(position));
+        }
+
+        public Task task(int position) {
+            return TaskColumns.this.task(row(position));
+        }
+    }
+
+    /**
+     * Tâche adossée à une ligne : l'échéance et le statut sont copiés des colonnes, le titre
+     * et la description décodés au premier accès (course bénigne entre threads).
+     */
+    private static final class ColumnTask extends Task {
+        private final TaskColumns columns;
+        private final int row;
+        private String title;
+        private String description;
+
+        ColumnTask(TaskColumns columns, int row) {
+            super(columns.id(row), null, null, columns.dueDays.getInt(row * 4), columns.statuses.getShort(row * 2));
+            this.columns = columns;
+            this.row = row;
+        }
+
+        @Override
+        public String getTitle() {
+            String value = title;
+            if (value == null && columns.hasText(row, 0)) {
+                value = columns.text(row, 0);
+                title = value;
+            }
+            return value;
+        }
+
+        @Override
+        public String getDescription() {
+            String value = description;
+            if (value == null && columns.hasText(row, 1)) {
+                value = columns.text(row, 1);
+                description = value;
+            }
+            return value;
+        }
+    }
+
+    // Remplit les colonnes ligne par ligne ; les tâches doivent arriver par identifiant croissant
+    public static final class Builder {
+        private final int capacity;
+        private final ByteBuffer ids;
+        private final ByteBuffer dueDays;
+        private final ByteBuffer statuses;
+        private final ByteBuffer textOffsets;
+        private final List<ByteBuffer> textChunks = new ArrayList<>();
+        private ByteBuffer currentChunk;
+        private int count;
+        private long lastId = Long.MIN_VALUE;
+
+        public Builder(int capacity) {
+            if (capacity < 0 || capacity > Integer.MAX_VALUE / 8) {
+                throw new IllegalArgumentException("Trop de tâches pour le stockage en colonnes: " + capacity);
+            }
+            this.capacity = capacity;
+            this.ids = ByteBuffer.allocateDirect(capacity * 8);
+            this.dueDays = ByteBuffer.allocateDirect(capacity * 4);
+            this.statuses = ByteBuffer.allocateDirect(capacity * 2);
+            this.textOffsets = ByteBuffer.allocateDirect(capacity * 8);
+        }
+
+        public void add(Task task) {
+            if (count == capacity) {
+                throw new IllegalStateException("Colonnes pleines: " + capacity + " lignes");
+            }
+            if (task.getId() <= lastId) {
+                throw new IllegalArgumentException("Identifiants non croissants: " + task.getId());
+            }
+            lastId = task.getId();
+            byte[] title = bytesOf(task.getTitle());
+            byte[] description = bytesOf(task.getDescription());
+            int length = 8 + length(title) + length(description);
+            if (currentChunk == null || currentChunk.remaining() < length) {
+                int size = currentChunk == null ? FIRST_TEXT_CHUNK_SIZE
+                        : Math.min(MAX_TEXT_CHUNK_SIZE, currentChunk.capacity() * 2);
+                currentChunk = ByteBuffer.allocateDirect(Math.max(size, length));
+                textChunks.add(currentChunk);
+            }
+            textOffsets.putLong(count * 8, (long) (textChunks.size() - 1) << 32 | currentChunk.position());
+            putText(currentChunk, title);
+            putText(currentChunk, description);
+
+            ids.putLong(count * 8, task.getId());
+            dueDays.putInt(count * 4, task.getDueEpochDay());
+            statuses.putShort(count * 2, Task.statusCode(task.getStatus()));
+            count++;
+        }
+
+        public TaskColumns build() {
+            return new TaskColumns(count, ids, dueDays, statuses, textOffsets, textChunks.toArray(new ByteBuffer[0]));
+        }
+
+        private static byte[] bytesOf(String value) {
+            return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+        }
+
+        private static int length(byte[] bytes) {
+            return bytes != null ? bytes.length : 0;
+        }
+
+        private static void putText(ByteBuffer chunk, byte[] bytes) {
+            chunk.putInt(bytes != null ? bytes.length : NO_TEXT);
+            if (bytes != null) {
+                chunk.put(bytes);
+            }
+        }
+    }
+
+    private TaskColumns(int rowCount, ByteBuffer ids, ByteBuffer dueDays, ByteBuffer statuses,
+            ByteBuffer textOffsets, ByteBuffer[] textChunks) {
+        this.rowCount = rowCount;
+        this.ids = ids;
+        this.dueDays = dueDays;
+        this.statuses = statuses;
+        this.textOffsets = textOffsets;
+        this.textChunks = textChunks;
+        this.byId = new Order(null);
+    }
+
+    public int size() {
+        return rowCount;
+    }
+
+    public long id(int row) {
+        return ids.getLong(row * 8);
+    }
+
+    public int dueEpochDay(int row) {
+        return dueDays.getInt(row * 4);
+    }
+
+    public short statusCode(int row) {
+        return statuses.getShort(row * 2);
+    }
+
+    // Ligne de l'identifiant (recherche dichotomique sur la colonne triée), -1 si absent
+    public int rowOf(long id) {
+        int low = 0;
+        int high = rowCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long value = id(middle);
+            if (value < id) {
+                low = middle + 1;
+            } else if (value > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    // Tâche de la ligne ; la même instance est rendue tant que la ligne reste dans le cache
+    public Task task(int row) {
+        int slot = row & (RECENT_SIZE - 1);
+        ColumnTask cached = recent[slot];
+        if (cached == null || cached.row != row) {
+            cached = new ColumnTask(this, row);
+            recent[slot] = cached;
+        }
+        return cached;
+    }
+
+    // Vrai si la tâche provient de ces colonnes
+    public boolean contains(Task task) {
+        return task instanceof ColumnTask && ((ColumnTask) task).columns == this;
+    }
+
+    public Order byId() {
+        return byId;
+    }
+
+    // Lignes triées par échéance (sans échéance en dernier) puis par identifiant
+    public synchronized Order byDate() {
+        if (byDate == null) {
+            long[] keys = new long[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                int day = dueDays.getInt(row * 4);
+                long key = day == Task.NO_DATE ? 0xFFFFFFFFL : (long) day - Integer.MIN_VALUE - 1;
+                keys[row] = (key << 32 | row) ^ Long.MIN_VALUE; // tri signé d'une clé non signée
+            }
+            byDate = sortedOrder(keys);
+        }
+        return byDate;
+    }
+
+    // Lignes triées par libellé de statut (sans statut en dernier) puis par identifiant
+    public synchronized Order byStatus() {
+        if (byStatus == null) {
+            int[] rank = statusRanks();
+            long[] keys = new long[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                keys[row] = (long) rank[Task.statusSlot(statuses.getShort(row * 2))] << 32 | row;
+            }
+            byStatus = sortedOrder(keys);
+        }
+        return byStatus;
+    }
+
+    /**
+     * Tâches dont le titre, le statut ou la description contient la requête déjà en
+     * minuscules, par identifiant croissant. Les lignes exclues (remplacées ou supprimées
+     * depuis le chargement) sont ignorées. Un texte purement ASCII est comparé octet par
+     * octet, sans décodage ; les autres sont décodés pour appliquer toLowerCase.
+     */
+    public List<Task> search(String lowerQuery, LongPredicate excluded) {
+        byte[] query = lowerQuery.getBytes(StandardCharsets.UTF_8);
+        // Par Task.statusSlot : les lignes ne portent que des codes attribués avant leur chargement
+        int statusCount = Task.statusCount();
+        boolean[] statusMatches = new boolean[statusCount + 1];
+        for (int code = 0; code < statusCount; code++) {
+            String label = Task.statusLabel((short) code);
+            statusMatches[code + 1] = label.toLowerCase(Locale.ROOT).contains(lowerQuery);
+        }
+
+        int batches = (rowCount + SCAN_BATCH - 1) / SCAN_BATCH;
+        List<int[]> matches = IntStream.range(0, batches).parallel()
+                .mapToObj(batch -> scan(batch * SCAN_BATCH, Math.min(rowCount, (batch + 1) * SCAN_BATCH),
+                        query, lowerQuery, statusMatches, excluded))
+                .collect(Collectors.toList());
+
+        List<Task> results = new ArrayList<>();
+        for (int[] rows : matches) {
+            for (int row : rows) {
+                results.add(task(row));
+            }
+        }
+        return results;
+    }
+
+    private int[] scan(int from, int to, byte[] query, String lowerQuery, boolean[] statusMatches,
+            LongPredicate excluded) {
+        int[] rows = new int[16];
+        int count = 0;
+        for (int row = from; row < to; row++) {
+            if (!statusMatches[Task.statusSlot(statuses.getShort(row * 2))] && !textMatches(row, 0, query, lowerQuery)
+                    && !textMatches(row, 1, query, lowerQuery)) {
+                continue;
+            }
+            if (excluded.test(id(row))) {
+                continue;
+            }
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            rows[count++] = row;
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private boolean textMatches(int row, int field, byte[] query, String lowerQuery) {
+        ByteBuffer chunk = chunkOf(row);
+        int start = fieldStart(row, field);
+        int length = chunk.getInt(start);
+        if (length == NO_TEXT) {
+            return false;
+        }
+        start += 4;
+        int end = start + length;
+        for (int i = start; i < end; i++) {
+            if (chunk.get(i) < 0) {
+                return text(row, field).toLowerCase(Locale.ROOT).contains(lowerQuery);
+            }
+        }
+        // Texte ASCII : minuscules octet par octet, équivalent à toLowerCase(Locale.ROOT)
+        outer: for (int i = start; i <= end - query.length; i++) {
+            for (int j = 0; j < query.length; j++) {
+                byte b = chunk.get(i + j);
+                if (b >= 'A' && b <= 'Z') {
+                    b += 'a' - 'A';
+                }
+                if (b != query[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean hasText(int row, int field) {
+        return chunkOf(row).getInt(fieldStart(row, field)) != NO_TEXT;
+    }
+
+    // Titre (field 0) ou description (field 1) de la ligne
+    private String text(int row, int field) {
+        ByteBuffer chunk = chunkOf(row);
+        int start = fieldStart(row, field);
+        byte[] bytes = new byte[chunk.getInt(start)];
+        chunk.get(start + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer chunkOf(int row) {
+        return textChunks[(int) (textOffsets.getLong(row * 8) >>> 32)];
+    }
+
+    private int fieldStart(int row, int field) {
+        int start = (int) textOffsets.getLong(row * 8);
+        if (field == 1) {
+            int titleLength = chunkOf(row).getInt(start);
+            start += 4 + Math.max(0, titleLength);
+        }
+        return start;
+    }
+
+    // Rang de chaque code de statut, par Task.statusSlot, dans l'ordre des libellés (null en dernier)
+    private static int[] statusRanks() {
+        int slots = Task.statusCount() + 1;
+        String[] labels = new String[slots];
+        Integer[] order = new Integer[slots];
+        for (int slot = 0; slot < slots; slot++) {
+            labels[slot] = slot == 0 ? null : Task.statusLabel((short) (slot - 1));
+            order[slot] = slot;
+        }
+        Arrays.sort(order, (a, b) -> {
+            String la = labels[a];
+            String lb = labels[b];
+            return la == null ? (lb == null ? 0 : 1) : lb == null ? -1 : la.compareTo(lb);
+        });
+        int[] rank = new int[slots];
+        for (int i = 0; i < order.length; i++) {
+            rank[order[i]] = i;
+        }
+        return rank;
+    }
+
+    // Permutation des lignes d'après des clés dont les 32 bits de poids faible sont la ligne
+    private Order sortedOrder(long[] keys) {
+        Arrays.parallelSort(keys);
+        ByteBuffer rows = ByteBuffer.allocateDirect(rowCount * 4);
+        for (int position = 0; position < rowCount; position++) {
+            rows.putInt(position * 4, (int) keys[position]);
+        }
+        return new Order(rows);
+    }
+}
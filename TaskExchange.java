@@ -0,0 +1,727 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Import et export de tâches en flux, une tâche à la fois : la mémoire utilisée ne dépend
+ * pas du nombre de tâches. Trois formats d'une tâche par enregistrement :
+ *   PIPE  : "titre|description|date|statut", le format historique, avec l'échappement du
+ *           journal (\p, \n, \\) pour qu'un '|' ou un retour à la ligne ne coupe rien
+ *   CSV   : RFC 4180 avec l'en-tête id,titre,description,echeance,statut
+ *   JSONL : un objet {"id":..,"titre":..,"description":..,"echeance":..,"statut":..} par ligne
+ *
+ * Côté lecture, reader et stream tirent les tâches à la demande ; côté écriture, writer
+ * les ajoute une à une. publisher et subscriber relient les deux en mode poussé
+ * (java.util.concurrent.Flow) avec contre-pression : l'éditeur ne lit un enregistrement que
+ * si l'abonné l'a demandé, et l'abonné n'en demande qu'un lot à la fois. Un enregistrement
+ * invalide est une erreur (numéro de ligne compris), jamais une tâche perdue en silence.
+ */
+public final class TaskExchange {
+    private static final String CSV_HEADER = "id,titre,description,echeance,statut";
+
+    public enum Format {
+        PIPE, CSV, JSONL;
+
+        // Format déduit de l'extension (.csv, .jsonl ou .ndjson ; pipe sinon)
+        public static Format of(Path path) {
+            String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSONL : PIPE;
+        }
+    }
+
+    // Destination des tâches d'un flux
+    public interface TaskSink {
+        void accept(Task task) throws IOException;
+
+        // Appelé une fois après la dernière tâche
+        default void finish() throws IOException {
+        }
+    }
+
+    // Source relue à chaque abonnement ; un itérateur Closeable est fermé à la fin
+    public interface TaskSource {
+        Iterator<Task> open() throws IOException;
+    }
+
+    private TaskExchange() {
+    }
+
+    public static TaskReader reader(Reader in, Format format) {
+        return new TaskReader(in, format);
+    }
+
+    // Flux paresseux des tâches d'un fichier UTF-8 ; à fermer (try-with-resources)
+    public static Stream<Task> stream(Path path, Format format) throws IOException {
+        TaskReader reader = reader(Files.newBufferedReader(path, StandardCharsets.UTF_8), format);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(reader::closeUnchecked);
+    }
+
+    // Écrit aussitôt l'en-tête éventuel ; out est fermé avec le TaskWriter
+    public static TaskWriter writer(Writer out, Format format) throws IOException {
+        return new TaskWriter(out, format);
+    }
+
+    // Écrit toutes les tâches puis vide le tampon (out reste ouvert) ; renvoie leur nombre
+    public static long write(Iterator<Task> tasks, Writer out, Format format) throws IOException {
+        TaskWriter writer = writer(out, format);
+        while (tasks.hasNext()) {
+            writer.accept(tasks.next());
+        }
+        writer.flush();
+        return writer.getCount();
+    }
+
+    /**
+     * Éditeur froid : chaque abonné obtient sa propre lecture de source, faite sur executor
+     * au rythme de ses demandes (request). Une erreur de lecture arrive par onError.
+     */
+    public static Flow.Publisher<Task> publisher(TaskSource source, Executor executor) {
+        return subscriber -> new IteratorSubscription(source, subscriber, executor).start();
+    }
+
+    public static Flow.Publisher<Task> publisher(Path path, Format format, Executor executor) {
+        return publisher(() -> reader(Files.newBufferedReader(path, StandardCharsets.UTF_8), format), executor);
+    }
+
+    // Abonné qui passe les tâches à sink en demandant batchSize tâches à la fois
+    public static SinkSubscriber subscriber(TaskSink sink, int batchSize) {
+        return new SinkSubscriber(sink, batchSize);
+    }
+
+    /**
+     * Lecture enregistrement par enregistrement. Les erreurs de lecture et les
+     * enregistrements invalides sont levés en UncheckedIOException, comme Files.lines.
+     */
+    public static final class TaskReader implements Iterator<Task>, Closeable {
+        private final BufferedReader in;
+        private final Format format;
+        private Task next;
+        private boolean finished;
+        private long lineNumber;
+
+        private TaskReader(Reader in, Format format) {
+            this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, 1 << 16);
+            this.format = format;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    next = readTask();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                finished = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Task next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Task task = next;
+            next = null;
+            return task;
+        }
+
+        @Override
+        public void close() throws IOException {
+            finished = true;
+            in.close();
+        }
+
+        private void closeUnchecked() {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Prochaine tâche, null en fin de fichier ; les lignes vides sont ignorées
+        private Task readTask() throws IOException {
+            while (true) {
+                String line = in.readLine();
+                if (line == null) {
+                    return null;
+                }
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                long firstLine = lineNumber;
+                try {
+                    switch (format) {
+                        case CSV: {
+                            // Un champ entre guillemets peut contenir des retours à la ligne (relus en \n)
+                            StringBuilder record = null;
+                            while (!balancedQuotes(record != null ? record : line)) {
+                                String more = in.readLine();
+                                if (more == null) {
+                                    throw new IOException("guillemet non fermé");
+                                }
+                                lineNumber++;
+                                record = (record != null ? record : new StringBuilder(line)).append('\n')
+                                        .append(more);
+                            }
+                            List<String> fields = parseCsv(record != null ? record.toString() : line);
+                            if (firstLine == 1 && CSV_HEADER.equals(String.join(",", fields))) {
+                                continue;
+                            }
+                            return csvTask(fields);
+                        }
+                        case JSONL:
+                            return new JsonObject(line).toTask();
+                        default: {
+                            Task task = TaskJournal.decodeTask(line);
+                            if (task == null) {
+                                throw new IOException("4 champs attendus");
+                            }
+                            return task;
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    throw new IOException("Enregistrement invalide ligne " + firstLine + " : " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    // Écriture tâche par tâche, avec un tampon de 64 Ko
+    public static final class TaskWriter implements TaskSink, Flushable, Closeable {
+        private final Writer out;
+        private final Format format;
+        private final StringBuilder line = new StringBuilder(256);
+        private long count;
+
+        private TaskWriter(Writer out, Format format) throws IOException {
+            this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16);
+            this.format = format;
+            if (format == Format.CSV) {
+                this.out.write(CSV_HEADER);
+                this.out.write('\n');
+            }
+        }
+
+        @Override
+        public void accept(Task task) throws IOException {
+            line.setLength(0);
+            switch (format) {
+                case CSV:
+                    line.append(task.getId()).append(',');
+                    appendCsv(line, task.getTitle()).append(',');
+                    appendCsv(line, task.getDescription()).append(',');
+                    if (task.hasDueDate()) {
+                        line.append(task.getDueDate());
+                    }
+                    line.append(',');
+                    appendCsv(line, task.getStatus());
+                    break;
+                case JSONL:
+                    line.append("{\"id\":").append(task.getId()).append(",\"titre\":");
+                    appendJson(line, task.getTitle()).append(",\"description\":");
+                    appendJson(line, task.getDescription()).append(",\"echeance\":");
+                    appendJson(line, task.hasDueDate() ? task.getDueDate().toString() : null).append(",\"statut\":");
+                    appendJson(line, task.getStatus()).append('}');
+                    break;
+                default:
+                    line.append(TaskJournal.encodeTask(task));
+            }
+            line.append('\n');
+            out.append(line);
+            count++;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            flush();
+        }
+
+        // Nombre de tâches écrites
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Abonnement d'un éditeur : les demandes s'accumulent dans demand et une seule boucle
+     * d'émission tourne à la fois sur l'executor (wip compte les réveils manqués).
+     */
+    private static final class IteratorSubscription implements Flow.Subscription, Runnable {
+        private final TaskSource source;
+        private final Flow.Subscriber<? super Task> subscriber;
+        private final Executor executor;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private Iterator<Task> iterator;
+
+        IteratorSubscription(TaskSource source, Flow.Subscriber<? super Task> subscriber, Executor executor) {
+            this.source = source;
+            this.subscriber = subscriber;
+            this.executor = executor;
+        }
+
+        void start() {
+            subscriber.onSubscribe(this);
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Demande non positive: " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule(); // fermeture de la source par la boucle d'émission
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!emit()) {
+                    return; // terminé : les réveils suivants sont ignorés (wip reste non nul)
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        // false une fois l'abonnement terminé (fin, erreur ou annulation)
+        private boolean emit() {
+            try {
+                if (cancelled) {
+                    closeSource();
+                    return false;
+                }
+                if (invalidRequest != null) {
+                    cancelled = true;
+                    closeSource();
+                    subscriber.onError(invalidRequest);
+                    return false;
+                }
+                if (iterator == null) {
+                    iterator = source.open();
+                }
+                while (demand.get() > 0 && !cancelled && iterator.hasNext()) {
+                    Task task = iterator.next();
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    subscriber.onNext(task);
+                }
+                if (!cancelled && !iterator.hasNext()) {
+                    cancelled = true;
+                    closeSource();
+                    subscriber.onComplete();
+                    return false;
+                }
+                return true;
+            } catch (IOException | RuntimeException e) {
+                boolean wasCancelled = cancelled;
+                cancelled = true;
+                closeSource();
+                if (!wasCancelled) {
+                    subscriber.onError(e instanceof UncheckedIOException ? e.getCause() : e);
+                }
+                return false;
+            }
+        }
+
+        private void closeSource() {
+            if (iterator instanceof Closeable) {
+                try {
+                    ((Closeable) iterator).close();
+                } catch (IOException e) {
+                    // la source est abandonnée de toute façon
+                }
+            }
+        }
+    }
+
+    /**
+     * Abonné qui transmet les tâches à un TaskSink. Il demande batchSize tâches, puis un
+     * nouveau lot à chaque lot traité : au plus batchSize tâches sont en transit.
+     */
+    public static final class SinkSubscriber implements Flow.Subscriber<Task> {
+        private final TaskSink sink;
+        private final int batchSize;
+        private final CompletableFuture<Long> completion = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+        private long count;
+        private int pendingInBatch;
+
+        private SinkSubscriber(TaskSink sink, int batchSize) {
+            this.sink = sink;
+            this.batchSize = Math.max(1, batchSize);
+        }
+
+        // Nombre de tâches reçues à la fin du flux, ou son erreur
+        public CompletableFuture<Long> completion() {
+            return completion;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription newSubscription) {
+            if (subscription != null) {
+                newSubscription.cancel();
+                return;
+            }
+            subscription = newSubscription;
+            pendingInBatch = batchSize;
+            newSubscription.request(batchSize);
+        }
+
+        @Override
+        public void onNext(Task task) {
+            if (completion.isDone()) {
+                return;
+            }
+            try {
+                sink.accept(task);
+                count++;
+            } catch (IOException | RuntimeException e) {
+                subscription.cancel();
+                completion.completeExceptionally(e);
+                return;
+            }
+            if (--pendingInBatch == 0) {
+                pendingInBatch = batchSize;
+                subscription.request(batchSize);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            completion.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+            try {
+                sink.finish();
+                completion.complete(count);
+            } catch (IOException | RuntimeException e) {
+                completion.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static boolean balancedQuotes(CharSequence record) {
+        int quotes = 0;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return (quotes & 1) == 0;
+    }
+
+    private static List<String> parseCsv(String record) throws IOException {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // id (facultatif), titre, description, échéance (AAAA-MM-JJ ou vide), statut (vide : aucun)
+    private static Task csvTask(List<String> fields) throws IOException {
+        if (fields.size() != 5) {
+            throw new IOException("5 champs attendus, " + fields.size() + " trouvés");
+        }
+        long id = fields.get(0).isEmpty() ? 0 : Long.parseLong(fields.get(0).trim());
+        LocalDate date = fields.get(3).isEmpty() ? null : LocalDate.parse(fields.get(3).trim());
+        String status = fields.get(4).isEmpty() ? null : fields.get(4);
+        return new Task(fields.get(1), fields.get(2), date, status).withId(id);
+    }
+
+    private static StringBuilder appendCsv(StringBuilder sb, String value) {
+        if (value == null) {
+            return sb;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return sb.append(value);
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            sb.append(c);
+            if (c == '"') {
+                sb.append('"');
+            }
+        }
+        return sb.append('"');
+    }
+
+    private static StringBuilder appendJson(StringBuilder sb, String value) {
+        if (value == null) {
+            return sb.append("null");
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"');
+    }
+
+    /**
+     * Analyse d'un objet JSON plat (chaînes, nombres, null, booléens) ; les clés inconnues
+     * sont ignorées, une valeur imbriquée est refusée.
+     */
+    private static final class JsonObject {
+        private final String text;
+        private int position;
+        private long id;
+        private String title;
+        private String description;
+        private String dueDate;
+        private String status;
+
+        JsonObject(String text) throws IOException {
+            this.text = text;
+            parse();
+        }
+
+        Task toTask() {
+            LocalDate date = dueDate == null || dueDate.isEmpty() ? null : LocalDate.parse(dueDate);
+            return new Task(title, description, date, status).withId(id);
+        }
+
+        private void parse() throws IOException {
+            expect('{');
+            if (peek() == '}') {
+                position++;
+            } else {
+                while (true) {
+                    String key = readString();
+                    expect(':');
+                    skipSpaces();
+                    char c = peek();
+                    String value;
+                    if (c == '"') {
+                        value = readString();
+                    } else if (c == '{' || c == '[') {
+                        throw new IOException("valeur imbriquée pour \"" + key + "\"");
+                    } else {
+                        value = readLiteral();
+                    }
+                    assign(key, value);
+                    skipSpaces();
+                    if (peek() == ',') {
+                        position++;
+                        continue;
+                    }
+                    expect('}');
+                    break;
+                }
+            }
+            skipSpaces();
+            if (position != text.length()) {
+                throw new IOException("texte après l'objet");
+            }
+        }
+
+        private void assign(String key, String value) {
+            switch (key) {
+                case "id":
+                    id = value == null ? 0 : Long.parseLong(value);
+                    break;
+                case "titre":
+                    title = value;
+                    break;
+                case "description":
+                    description = value;
+                    break;
+                case "echeance":
+                    dueDate = value;
+                    break;
+                case "statut":
+                    status = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // Nombre, true ou false tels quels ; null donne null
+        private String readLiteral() throws IOException {
+            int start = position;
+            while (position < text.length() && ",} \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty()) {
+                throw new IOException("valeur attendue position " + start);
+            }
+            return "null".equals(literal) ? null : literal;
+        }
+
+        private String readString() throws IOException {
+            skipSpaces();
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw new IOException("échappement \\u incomplet");
+                        }
+                        sb.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                        break;
+                    default:
+                        sb.append(escaped); // \" \\ \/
+                }
+            }
+            throw new IOException("chaîne non fermée");
+        }
+
+        private void expect(char expected) throws IOException {
+            skipSpaces();
+            if (peek() != expected) {
+                throw new IOException("'" + expected + "' attendu position " + position);
+            }
+            position++;
+        }
+
+        private char peek() {
+            return position < text.length() ? text.charAt(position) : '\0';
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+}
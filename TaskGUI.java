@@ -1,5 +1,4 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.time.LocalDate;
@@ -9,6 +8,22 @@ import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.border.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 /**
  * Interface graphique moderne avec Swing pour la gestion des tâches
@@ -16,7 +31,7 @@ import java.awt.event.MouseEvent;
 public class TaskGUI extends JFrame {
     private TaskManager taskManager;
     private JTable taskTable;
-    private DefaultTableModel tableModel;
+    private TaskTableModel tableModel;
 
     // Composants Swing
     private JTextField titleField;
@@ -30,15 +45,58 @@ public class TaskGUI extends JFrame {
     private JButton modifyButton;
     private JButton deleteButton;
     private JButton completeButton;
+    private JButton statusButton;
     private JButton resetButton;
     private JButton searchButton;
     private JButton sortByDateButton;
     private JButton sortByStatusButton;
+    private JButton undoButton;
+    private JButton redoButton;
     private JButton saveButton;
     private JButton loadButton;
+    private JButton cancelIoButton;
+    private JProgressBar ioProgressBar;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
+    // Recherche pendant la frappe : délai d'attente puis exécution hors de l'EDT
+    private static final int SEARCH_DEBOUNCE_MS = 250;
+    // Résultats d'une requête lus par paquets, entre lesquels une annulation est prise en compte
+    private static final int QUERY_PAGE_SIZE = 16_384;
+    private static final String SEARCH_HELP = "Texte, ou requête : status:Terminé due<2026-12-01 title~\"rapport\" "
+            + "OR NOT (...) sort:-due limit:50";
+    private Timer searchDebounceTimer;
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "task-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> pendingSearch;
+    private long searchGeneration; // seule la dernière recherche lancée est affichée
+
+    // Chargement ou sauvegarde en cours (null si aucun)
+    private CompletableFuture<Void> pendingIo;
+    // Vrai tant que le chargement du démarrage n'a pas réussi : l'application n'est pas en mode
+    // journal, et sauvegarder réécrirait tasks.bin puis supprimerait tasks.journal encore illisibles
+    private boolean saveBlocked;
+    private boolean backgroundErrorShown;
+
+    // Rappels d'échéance, affichés dans l'en-tête (un clic les masque)
+    private TaskReminders reminders;
+    private JLabel reminderLabel;
+    // Nombre de tâches par statut et en retard, au-dessus de la table
+    private JLabel countsLabel;
+    // Comptages faits hors de l'EDT (un jour nouveau impose un parcours), un seul en attente à la fois
+    private final ExecutorService countsExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "task-counts");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean countsPending = new AtomicBoolean();
+    private final AtomicBoolean historyPending = new AtomicBoolean();
+    private String dueReminder = "";
+    private String overdueReminder = "";
+
     // Palette de couleurs moderne
     private static final Color PRIMARY_COLOR = new Color(99, 102, 241); // Indigo
     private static final Color PRIMARY_DARK = new Color(79, 70, 229);
@@ -57,8 +115,39 @@ public class TaskGUI extends JFrame {
     private static final Color PENDING_BG = new Color(254, 249, 195); // Light yellow
 
     public TaskGUI() {
-        taskManager = new TaskManager();
+        // -Dtasks.storage=columns range les tâches chargées hors du tas (très grandes listes)
+        taskManager = new TaskManager("columns".equalsIgnoreCase(System.getProperty("tasks.storage"))
+                ? TaskManager.Storage.COLUMNS : TaskManager.Storage.HEAP);
+        // Mesures exposées en JMX ; -Dtasks.metrics.csv=fichier (ou -) les écrit aussi périodiquement
+        TaskMetrics.startFromSystemProperties();
+        // Modifications regroupées et écrites toutes les tasks.autosave.interval ms (0 : à chaque opération)
+        taskManager.setAutosave(Long.getLong("tasks.autosave.interval", 2000),
+                Integer.getInteger("tasks.autosave.threshold", 1000));
+        // -Dtasks.edt.watchdog=<ms> trace dans edt-stalls.log les événements qui bloquent l'EDT plus longtemps
+        EdtWatchdog.startFromSystemProperties();
         initializeUI();
+        // Erreurs des threads d'arrière-plan (journal, décodage de la table, rappels) et de l'EDT
+        Thread.setDefaultUncaughtExceptionHandler(
+                (thread, error) -> SwingUtilities.invokeLater(() -> showBackgroundError(thread, error)));
+        // Compteurs et boutons d'historique mis à jour après chaque publication, pas à chaque page de la table
+        taskManager.addChangeListener(new TaskManager.ChangeListener() {
+            @Override
+            public void taskChanged(Task previous, Task next) {
+                committed();
+            }
+
+            @Override
+            public void tasksChanged(List<Task> previous, List<Task> next) {
+                committed();
+            }
+
+            @Override
+            public void tasksReplaced() {
+                committed();
+            }
+        });
+        reminders = new TaskReminders(taskManager, java.time.Clock.systemDefaultZone(),
+                (kind, tasks) -> SwingUtilities.invokeLater(() -> showReminder(kind, tasks)));
         loadTasksOnStartup();
     }
 
@@ -68,6 +157,19 @@ public class TaskGUI extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout(0, 0));
 
+        // Écrire les modifications en attente et le journal sur disque avant la fermeture
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                try {
+                    taskManager.closeJournal();
+                } catch (Exception ex) {
+                    showStyledMessage("Erreur lors de l'écriture du journal: " + ex.getMessage(), "Erreur",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+
         // Set modern look and feel
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -126,6 +228,21 @@ public class TaskGUI extends JFrame {
 
         panel.add(textPanel, BorderLayout.WEST);
 
+        reminderLabel = new JLabel();
+        reminderLabel.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        reminderLabel.setForeground(DANGER_COLOR);
+        reminderLabel.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        reminderLabel.setVisible(false);
+        reminderLabel.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                dueReminder = "";
+                overdueReminder = "";
+                reminderLabel.setVisible(false);
+            }
+        });
+        panel.add(reminderLabel, BorderLayout.EAST);
+
         return panel;
     }
 
@@ -226,7 +343,7 @@ public class TaskGUI extends JFrame {
         // Boutons de gestion
         gbc.gridy = 8;
         gbc.insets = new Insets(20, 0, 0, 0);
-        JPanel buttonPanel = new JPanel(new GridLayout(5, 1, 0, 10));
+        JPanel buttonPanel = new JPanel(new GridLayout(6, 1, 0, 10));
         buttonPanel.setBackground(CARD_COLOR);
 
         addButton = createStyledButton("➕ Ajouter", PRIMARY_COLOR, Color.WHITE);
@@ -241,6 +358,11 @@ public class TaskGUI extends JFrame {
         completeButton.addActionListener(e -> markAsCompleted());
         buttonPanel.add(completeButton);
 
+        statusButton = createStyledButton("🏷️ Appliquer le Statut", new Color(168, 85, 247), Color.WHITE);
+        statusButton.setToolTipText("Donner le statut choisi à toutes les tâches sélectionnées");
+        statusButton.addActionListener(e -> applyStatus());
+        buttonPanel.add(statusButton);
+
         deleteButton = createStyledButton("🗑️ Supprimer", DANGER_COLOR, Color.WHITE);
         deleteButton.addActionListener(e -> deleteTask());
         buttonPanel.add(deleteButton);
@@ -276,7 +398,14 @@ public class TaskGUI extends JFrame {
         JLabel sectionTitle = new JLabel("📋 Liste des Tâches");
         sectionTitle.setFont(new Font("Segoe UI", Font.BOLD, 18));
         sectionTitle.setForeground(TEXT_PRIMARY);
-        headerPanel.add(sectionTitle, BorderLayout.NORTH);
+        countsLabel = new JLabel();
+        countsLabel.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        countsLabel.setForeground(TEXT_SECONDARY);
+        JPanel titleRow = new JPanel(new BorderLayout(10, 0));
+        titleRow.setBackground(CARD_COLOR);
+        titleRow.add(sectionTitle, BorderLayout.WEST);
+        titleRow.add(countsLabel, BorderLayout.EAST);
+        headerPanel.add(titleRow, BorderLayout.NORTH);
 
         // Panel de recherche
         JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
@@ -287,6 +416,25 @@ public class TaskGUI extends JFrame {
         searchPanel.add(searchLabel);
 
         searchField = createStyledTextField(20);
+        searchField.setToolTipText(SEARCH_HELP);
+        searchDebounceTimer = new Timer(SEARCH_DEBOUNCE_MS, e -> searchTasks());
+        searchDebounceTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchDebounceTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchDebounceTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchDebounceTimer.restart();
+            }
+        });
         searchPanel.add(searchField);
 
         searchButton = createStyledButton("Rechercher", PRIMARY_COLOR, Color.WHITE);
@@ -294,23 +442,22 @@ public class TaskGUI extends JFrame {
         searchPanel.add(searchButton);
 
         JButton showAllButton = createStyledButton("Tout Afficher", new Color(107, 114, 128), Color.WHITE);
-        showAllButton.addActionListener(e -> refreshTable());
+        showAllButton.addActionListener(e -> {
+            searchField.setText("");
+            searchTasks();
+        });
         searchPanel.add(showAllButton);
 
         headerPanel.add(searchPanel, BorderLayout.SOUTH);
         panel.add(headerPanel, BorderLayout.NORTH);
 
-        // Créer la table
-        String[] columnNames = { "Titre", "Description", "Date d'échéance", "Statut" };
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Créer la table (modèle virtuel lu directement dans le TaskManager)
+        tableModel = new TaskTableModel(taskManager);
+        scheduleCounts();
 
         taskTable = new JTable(tableModel);
-        taskTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // Sélection multiple (Ctrl, Maj) : terminer, supprimer et changer le statut agissent par lot
+        taskTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         taskTable.setRowHeight(40);
         taskTable.setFont(new Font("Segoe UI", Font.PLAIN, 13));
         taskTable.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 13));
@@ -341,6 +488,28 @@ public class TaskGUI extends JFrame {
         scrollPane.getViewport().setBackground(Color.WHITE);
         panel.add(scrollPane, BorderLayout.CENTER);
 
+        // Ctrl+Z et Ctrl+Y quand la table a le focus : dans les champs du formulaire, ils ne doivent
+        // ni annuler une modification de tâche ni vider le formulaire
+        InputMap keys = scrollPane.getInputMap(JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
+        keys.put(KeyStroke.getKeyStroke("control Z"), "undo");
+        keys.put(KeyStroke.getKeyStroke("control Y"), "redo");
+        scrollPane.getActionMap().put("undo", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                if (undoButton.isEnabled()) {
+                    undo();
+                }
+            }
+        });
+        scrollPane.getActionMap().put("redo", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                if (redoButton.isEnabled()) {
+                    redo();
+                }
+            }
+        });
+
         return panel;
     }
 
@@ -356,6 +525,17 @@ public class TaskGUI extends JFrame {
         sortByStatusButton.addActionListener(e -> sortByStatus());
         panel.add(sortByStatusButton);
 
+        undoButton = createStyledButton("↶ Annuler", new Color(107, 114, 128), Color.WHITE);
+        undoButton.setToolTipText("Annuler la dernière modification (Ctrl+Z)");
+        undoButton.addActionListener(e -> undo());
+        panel.add(undoButton);
+
+        redoButton = createStyledButton("↷ Rétablir", new Color(107, 114, 128), Color.WHITE);
+        redoButton.setToolTipText("Rétablir la dernière modification annulée (Ctrl+Y)");
+        redoButton.addActionListener(e -> redo());
+        panel.add(redoButton);
+
+
         saveButton = createStyledButton("💾 Sauvegarder", new Color(16, 185, 129), Color.WHITE);
         saveButton.addActionListener(e -> saveTasks());
         panel.add(saveButton);
@@ -364,6 +544,22 @@ public class TaskGUI extends JFrame {
         loadButton.addActionListener(e -> loadTasks());
         panel.add(loadButton);
 
+        // Avancement des chargements et sauvegardes, visible seulement pendant l'opération
+        ioProgressBar = new JProgressBar(0, 1000);
+        ioProgressBar.setStringPainted(true);
+        ioProgressBar.setPreferredSize(new Dimension(260, 28));
+        ioProgressBar.setVisible(false);
+        panel.add(ioProgressBar);
+
+        cancelIoButton = createStyledButton("Annuler", DANGER_COLOR, Color.WHITE);
+        cancelIoButton.addActionListener(e -> {
+            if (pendingIo != null) {
+                pendingIo.cancel(true);
+            }
+        });
+        cancelIoButton.setVisible(false);
+        panel.add(cancelIoButton);
+
         return panel;
     }
 
@@ -430,8 +626,8 @@ public class TaskGUI extends JFrame {
             }
 
             Task task = new Task(title, description, dueDate, status);
-            taskManager.addTask(task);
-            refreshTable();
+            long id = taskManager.addTask(task);
+            tableModel.taskInserted(taskManager.indexOfTask(id));
             resetFields();
 
             showStyledMessage("Tâche ajoutée avec succès!", "Succès", JOptionPane.INFORMATION_MESSAGE);
@@ -441,11 +637,16 @@ public class TaskGUI extends JFrame {
     }
 
     private void modifyTask() {
-        int selectedRow = taskTable.getSelectedRow();
-        if (selectedRow == -1) {
+        long id = tableModel.getTaskIdAt(taskTable.getSelectedRow());
+        if (id == -1) {
             showStyledMessage("Veuillez sélectionner une tâche à modifier!", "Erreur", JOptionPane.ERROR_MESSAGE);
             return;
         }
+        if (taskTable.getSelectedRowCount() > 1) {
+            showStyledMessage("Sélectionnez une seule tâche à modifier (ou utilisez « Appliquer le Statut »)!",
+                    "Erreur", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
         try {
             String title = titleField.getText().trim();
@@ -470,8 +671,10 @@ public class TaskGUI extends JFrame {
             }
 
             Task updatedTask = new Task(title, description, dueDate, status);
-            taskManager.updateTask(selectedRow, updatedTask);
-            refreshTable();
+            int index = taskManager.indexOfTask(id);
+            if (taskManager.updateTaskById(id, updatedTask)) {
+                tableModel.taskMoved(index, taskManager.indexOfTask(id));
+            }
             resetFields();
 
             showStyledMessage("Tâche modifiée avec succès!", "Succès", JOptionPane.INFORMATION_MESSAGE);
@@ -481,11 +684,26 @@ public class TaskGUI extends JFrame {
     }
 
     private void deleteTask() {
-        int selectedRow = taskTable.getSelectedRow();
-        if (selectedRow == -1) {
+        long id = tableModel.getTaskIdAt(taskTable.getSelectedRow());
+        if (id == -1) {
             showStyledMessage("Veuillez sélectionner une tâche à supprimer!", "Erreur", JOptionPane.ERROR_MESSAGE);
             return;
         }
+        if (taskTable.getSelectedRowCount() > 1) {
+            long[] ids = selectedTaskIds();
+            int confirm = JOptionPane.showConfirmDialog(this,
+                    "Êtes-vous sûr de vouloir supprimer ces " + ids.length + " tâches?",
+                    "Confirmation",
+                    JOptionPane.YES_NO_OPTION);
+            if (confirm == JOptionPane.YES_OPTION) {
+                int deleted = taskManager.deleteTasksById(ids);
+                tableModel.tasksChanged();
+                resetFields();
+                showStyledMessage(deleted + " tâches supprimées avec succès!", "Succès",
+                        JOptionPane.INFORMATION_MESSAGE);
+            }
+            return;
+        }
 
         int confirm = JOptionPane.showConfirmDialog(this,
                 "Êtes-vous sûr de vouloir supprimer cette tâche?",
@@ -493,30 +711,74 @@ public class TaskGUI extends JFrame {
                 JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            taskManager.deleteTask(selectedRow);
-            refreshTable();
+            int index = taskManager.indexOfTask(id);
+            if (taskManager.deleteTaskById(id)) {
+                tableModel.taskDeleted(index);
+            }
             resetFields();
             showStyledMessage("Tâche supprimée avec succès!", "Succès", JOptionPane.INFORMATION_MESSAGE);
         }
     }
 
     private void markAsCompleted() {
-        int selectedRow = taskTable.getSelectedRow();
-        if (selectedRow == -1) {
+        long id = tableModel.getTaskIdAt(taskTable.getSelectedRow());
+        if (id == -1) {
             showStyledMessage("Veuillez sélectionner une tâche à marquer comme terminée!", "Erreur",
                     JOptionPane.ERROR_MESSAGE);
             return;
         }
+        if (taskTable.getSelectedRowCount() > 1) {
+            int completed = taskManager.completeTasksById(selectedTaskIds());
+            tableModel.tasksChanged();
+            resetFields();
+            showStyledMessage(completed + " tâches marquées comme terminées!", "Succès",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
 
-        Task task = taskManager.getTask(selectedRow);
-        if (task != null) {
-            task.markAsCompleted();
-            refreshTable();
+        int index = taskManager.indexOfTask(id);
+        if (taskManager.markAsCompletedById(id)) {
+            tableModel.taskMoved(index, taskManager.indexOfTask(id));
+            // Dans un ordre trié, la tâche peut changer de ligne : la garder sélectionnée
+            int row = tableModel.rowOfTask(id);
+            if (row != -1) {
+                taskTable.setRowSelectionInterval(row, row);
+            }
             statusComboBox.setSelectedItem("Terminé");
             showStyledMessage("Tâche marquée comme terminée!", "Succès", JOptionPane.INFORMATION_MESSAGE);
         }
     }
 
+    // Le statut choisi dans le formulaire est donné à toutes les tâches sélectionnées, en un lot
+    private void applyStatus() {
+        long[] ids = selectedTaskIds();
+        if (ids.length == 0) {
+            showStyledMessage("Veuillez sélectionner les tâches dont changer le statut!", "Erreur",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        String status = (String) statusComboBox.getSelectedItem();
+        int changed = taskManager.setStatusById(ids, status);
+        tableModel.tasksChanged();
+        resetFields();
+        showStyledMessage(changed + " tâche(s) passée(s) au statut « " + status + " »!", "Succès",
+                JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    // Identifiants des lignes sélectionnées, lus dans l'instantané affiché
+    private long[] selectedTaskIds() {
+        int[] rows = taskTable.getSelectedRows();
+        long[] ids = new long[rows.length];
+        int count = 0;
+        for (int row : rows) {
+            long id = tableModel.getTaskIdAt(row);
+            if (id != -1) {
+                ids[count++] = id;
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
     private void resetFields() {
         titleField.setText("");
         descriptionArea.setText("");
@@ -528,7 +790,7 @@ public class TaskGUI extends JFrame {
     private void loadSelectedTask() {
         int selectedRow = taskTable.getSelectedRow();
         if (selectedRow != -1) {
-            Task task = taskManager.getTask(selectedRow);
+            Task task = tableModel.getTaskAt(selectedRow);
             if (task != null) {
                 titleField.setText(task.getTitle());
                 descriptionArea.setText(task.getDescription());
@@ -538,36 +800,163 @@ public class TaskGUI extends JFrame {
         }
     }
 
-    private void refreshTable() {
-        tableModel.setRowCount(0);
-        for (Task task : taskManager.getAllTasks()) {
-            Object[] row = {
-                    task.getTitle(),
-                    task.getDescription(),
-                    task.getFormattedDate(),
-                    task.getStatus()
-            };
-            tableModel.addRow(row);
+    // Dernier rappel de chaque sorte ; la liste des titres est dans l'infobulle
+    private void showReminder(TaskReminders.Kind kind, List<Task> tasks) {
+        String subject = tasks.size() == 1 ? "« " + tasks.get(0).getTitle() + " »" : tasks.size() + " tâches";
+        if (kind == TaskReminders.Kind.DUE) {
+            dueReminder = "⏰ " + subject + (tasks.size() == 1 ? " arrive" : " arrivent")
+                    + " à échéance aujourd'hui";
+        } else {
+            overdueReminder = "⚠ " + subject + " en retard";
         }
+        StringBuilder tooltip = new StringBuilder("<html>");
+        for (int i = 0; i < Math.min(tasks.size(), 10); i++) {
+            tooltip.append(escapeHtml(tasks.get(i).getTitle())).append(" (").append(tasks.get(i).getFormattedDate())
+                    .append(")<br>");
+        }
+        if (tasks.size() > 10) {
+            tooltip.append("… et ").append(tasks.size() - 10).append(" autres");
+        }
+        reminderLabel.setText(String.join("   ", dueReminder, overdueReminder).trim());
+        reminderLabel.setToolTipText(tooltip.append("</html>").toString());
+        reminderLabel.setVisible(true);
+    }
+
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    // Compteurs de l'en-tête, lus en O(1) dans l'index des statuts du gestionnaire
+    // Appelé sous le verrou de publication du TaskManager : ne fait que planifier les mises à jour
+    private void committed() {
+        scheduleCounts();
+        if (historyPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                historyPending.set(false);
+                updateHistoryButtons();
+            });
+        }
+    }
+
+    // Annuler et Rétablir actifs seulement s'il y a de quoi, et hors chargement ou sauvegarde
+    private void updateHistoryButtons() {
+        undoButton.setEnabled(pendingIo == null && taskManager.canUndo());
+        redoButton.setEnabled(pendingIo == null && taskManager.canRedo());
+    }
+
+    private void scheduleCounts() {
+        if (countsPending.compareAndSet(false, true)) {
+            countsExecutor.execute(() -> {
+                countsPending.set(false);
+                String text = countsText();
+                SwingUtilities.invokeLater(() -> countsLabel.setText(text));
+            });
+        }
+    }
+
+    private String countsText() {
+        StringBuilder text = new StringBuilder().append(taskManager.getTaskCount()).append(" tâches");
+        taskManager.countsByStatus().forEach((status, count) -> text.append("  ·  ")
+                .append(status != null ? status : "Sans statut").append(' ').append(count));
+        int overdue = taskManager.countOverdue(LocalDate.now());
+        if (overdue > 0) {
+            text.append("  ·  En retard ").append(overdue);
+        }
+        return text.toString();
     }
 
+    private void refreshTable() {
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        tableModel.showAll();
+        TaskMetrics.REFRESH_TABLE.record(started, allocated);
+    }
+
+    /**
+     * Lance la recherche sur un thread d'arrière-plan. Une nouvelle recherche annule la
+     * précédente, et un résultat n'est affiché que s'il correspond encore à la dernière
+     * recherche lancée. Un texte écrit dans la syntaxe des requêtes (status:Terminé
+     * due<2026-12-01...) passe par TaskManager.query : sa première page est affichée dès
+     * qu'elle est prête, le reste ensuite ; une requête invalide est signalée dans l'infobulle
+     * du champ et recherchée comme du texte simple.
+     */
     private void searchTasks() {
+        searchDebounceTimer.stop();
+        if (pendingSearch != null) {
+            pendingSearch.cancel(true);
+            pendingSearch = null;
+        }
+        long generation = ++searchGeneration;
+
         String query = searchField.getText().trim();
         if (query.isEmpty()) {
+            searchField.setToolTipText(SEARCH_HELP);
             refreshTable();
             return;
         }
 
-        tableModel.setRowCount(0);
-        for (Task task : taskManager.searchTasks(query)) {
-            Object[] row = {
-                    task.getTitle(),
-                    task.getDescription(),
-                    task.getFormattedDate(),
-                    task.getStatus()
-            };
-            tableModel.addRow(row);
+        TaskQuery structured = null;
+        String error = null;
+        if (TaskQuery.isStructured(query)) {
+            try {
+                structured = TaskQuery.parse(query);
+            } catch (IllegalArgumentException e) {
+                error = "Requête invalide : " + e.getMessage();
+            }
         }
+        searchField.setToolTipText(error != null ? error : SEARCH_HELP);
+
+        TaskQuery parsed = structured;
+        pendingSearch = searchExecutor.submit(() -> {
+            if (parsed == null) {
+                List<Task> results = taskManager.searchTasks(query);
+                showSearchResults(generation, results, true);
+                return;
+            }
+            TaskQuery.Cursor cursor = taskManager.query(parsed);
+            List<Task> results = cursor.nextPage(TaskTableModel.PAGE_SIZE);
+            boolean complete = !cursor.hasNext();
+            showSearchResults(generation, new ArrayList<>(results), complete);
+            while (!complete) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return; // remplacée par une recherche plus récente
+                }
+                results.addAll(cursor.nextPage(QUERY_PAGE_SIZE));
+                complete = !cursor.hasNext();
+            }
+            showSearchResults(generation, results, true);
+        });
+    }
+
+    // Affiche un résultat (complet ou première page) s'il vient de la dernière recherche lancée
+    private void showSearchResults(long generation, List<Task> results, boolean complete) {
+        SwingUtilities.invokeLater(() -> {
+            if (generation == searchGeneration) {
+                if (complete) {
+                    pendingSearch = null;
+                }
+                tableModel.showFiltered(results);
+            }
+        });
+    }
+
+    // Annuler la dernière modification (ajout, modification, suppression ou lot)
+    private void undo() {
+        if (!taskManager.undo()) {
+            showStyledMessage("Aucune modification à annuler.", "Information", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        tableModel.tasksChanged();
+        resetFields();
+    }
+
+    private void redo() {
+        if (!taskManager.redo()) {
+            showStyledMessage("Aucune modification à rétablir.", "Information", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        tableModel.tasksChanged();
+        resetFields();
     }
 
     private void sortByDate() {
@@ -581,30 +970,106 @@ public class TaskGUI extends JFrame {
     }
 
     private void saveTasks() {
-        try {
-            taskManager.saveToFile();
-            showStyledMessage("Tâches sauvegardées avec succès!", "Succès", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            showStyledMessage("Erreur lors de la sauvegarde: " + e.getMessage(), "Erreur", JOptionPane.ERROR_MESSAGE);
+        if (saveBlocked) {
+            showStyledMessage("Sauvegarde désactivée : les tâches n'ont pas pu être chargées au démarrage. "
+                    + "Réessayez « Charger » après avoir vérifié tasks.bin et tasks.journal.", "Erreur",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        runIo("Sauvegarde", taskManager::saveToFileAsync, () -> showStyledMessage("Tâches sauvegardées avec succès!",
+                "Succès", JOptionPane.INFORMATION_MESSAGE), "Erreur lors de la sauvegarde: ");
     }
 
     private void loadTasks() {
-        try {
-            taskManager.loadFromFile();
+        // Après un échec au démarrage, recharger rouvre aussi le journal, comme au démarrage
+        runIo("Chargement", saveBlocked ? taskManager::openJournalAsync : taskManager::loadFromFileAsync, () -> {
+            saveBlocked = false;
+            saveButton.setEnabled(true);
             refreshTable();
             showStyledMessage("Tâches chargées avec succès!", "Succès", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            showStyledMessage("Erreur lors du chargement: " + e.getMessage(), "Erreur", JOptionPane.ERROR_MESSAGE);
-        }
+        }, "Erreur lors du chargement: ");
     }
 
     private void loadTasksOnStartup() {
-        try {
-            taskManager.loadFromFile();
+        // Sans fichier, le démarrage réussit à vide ; un fichier illisible est signalé et protégé
+        saveBlocked = true;
+        runIo("Chargement", taskManager::openJournalAsync, () -> {
+            saveBlocked = false;
+            saveButton.setEnabled(true);
             refreshTable();
-        } catch (Exception e) {
-            // Silently fail on startup if no file exists
+        }, "Impossible de charger les tâches (sauvegarde désactivée pour conserver tasks.bin et tasks.journal): ");
+    }
+
+    /**
+     * Lance un chargement ou une sauvegarde hors de l'EDT. Pendant l'opération, la barre
+     * d'avancement et le bouton d'annulation sont affichés et les actions qui modifient
+     * les tâches sont désactivées ; la fenêtre reste utilisable (défilement, recherche).
+     * errorPrefix null : les erreurs sont ignorées.
+     */
+    private void runIo(String label, Function<TaskManager.ProgressListener, CompletableFuture<Void>> operation,
+            Runnable onSuccess, String errorPrefix) {
+        if (pendingIo != null) {
+            return;
+        }
+        setIoRunning(true, label);
+        CompletableFuture<Void> future = operation.apply((bytes, totalBytes, tasks, totalTasks) ->
+                SwingUtilities.invokeLater(() -> showIoProgress(label, bytes, totalBytes, tasks, totalTasks)));
+        pendingIo = future;
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            pendingIo = null;
+            setIoRunning(false, label);
+            if (error == null) {
+                onSuccess.run();
+            } else if (error instanceof CancellationException) {
+                refreshTable();
+            } else if (errorPrefix != null) {
+                showStyledMessage(errorPrefix + error.getMessage(), "Erreur", JOptionPane.ERROR_MESSAGE);
+            }
+        }));
+    }
+
+    private void setIoRunning(boolean running, String label) {
+        ioProgressBar.setVisible(running);
+        ioProgressBar.setIndeterminate(running);
+        ioProgressBar.setString(label + "...");
+        cancelIoButton.setVisible(running);
+        for (JButton button : new JButton[] { addButton, modifyButton, deleteButton, completeButton, statusButton,
+                sortByDateButton, sortByStatusButton, undoButton, redoButton, saveButton, loadButton }) {
+            button.setEnabled(!running);
+        }
+        saveButton.setEnabled(!running && !saveBlocked);
+        if (!running) {
+            updateHistoryButtons();
+        }
+    }
+
+    private void showIoProgress(String label, long bytes, long totalBytes, int tasks, int totalTasks) {
+        if (pendingIo == null) {
+            return;
+        }
+        double fraction = totalTasks > 0 ? (double) tasks / totalTasks
+                : totalBytes > 0 ? (double) bytes / totalBytes : -1;
+        ioProgressBar.setIndeterminate(fraction < 0);
+        if (fraction >= 0) {
+            ioProgressBar.setValue((int) (fraction * ioProgressBar.getMaximum()));
+        }
+        ioProgressBar.setString(String.format("%s : %,d tâches, %,d Ko", label, tasks, bytes / 1024));
+    }
+
+    // Un seul message à la fois : une panne répétée (disque plein) n'empile pas les fenêtres.
+    // La trace complète part toujours sur la sortie d'erreur, même quand la fenêtre est déjà ouverte.
+    private void showBackgroundError(Thread thread, Throwable error) {
+        System.err.print("Exception in thread \"" + thread.getName() + "\" ");
+        error.printStackTrace();
+        if (backgroundErrorShown) {
+            return;
+        }
+        backgroundErrorShown = true;
+        try {
+            showStyledMessage("Erreur en arrière-plan (" + thread.getName() + "): " + error, "Erreur",
+                    JOptionPane.ERROR_MESSAGE);
+        } finally {
+            backgroundErrorShown = false;
         }
     }
 
@@ -612,34 +1077,43 @@ public class TaskGUI extends JFrame {
         JOptionPane.showMessageDialog(this, message, title, messageType);
     }
 
-    // Classe interne pour le rendu personnalisé moderne des cellules
-    private class ModernTaskTableCellRenderer extends DefaultTableCellRenderer {
+    /**
+     * Rendu personnalisé moderne des cellules. Appelé pour chaque cellule visible à chaque
+     * dessin : polices, couleurs, bordure et libellés de statut sont partagés, et le statut
+     * de la ligne est lu dans le modèle, pour ne rien allouer par cellule.
+     */
+    static class ModernTaskTableCellRenderer extends DefaultTableCellRenderer {
+        private static final Font CELL_FONT = new Font("Segoe UI", Font.PLAIN, 13);
+        private static final Font STATUS_FONT = new Font("Segoe UI", Font.BOLD, 12);
+        private static final Border CELL_BORDER = BorderFactory.createEmptyBorder(5, 10, 5, 10);
+        private static final Color COMPLETED_FG = new Color(22, 101, 52); // Dark green text
+        private static final Color PENDING_FG = new Color(133, 77, 14); // Dark yellow text
+
+        // Libellés "✓ statut" / "⏳ statut", construits une fois par statut
+        private final Map<String, String> badgeLabels = new HashMap<>();
+
         @Override
         public Component getTableCellRendererComponent(JTable table, Object value,
                 boolean isSelected, boolean hasFocus, int row, int column) {
             Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
 
-            setFont(new Font("Segoe UI", Font.PLAIN, 13));
-            setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+            setFont(CELL_FONT);
+            setBorder(CELL_BORDER);
 
             if (!isSelected) {
-                String status = (String) table.getValueAt(row, 3);
-                if ("Terminé".equals(status)) {
+                boolean completed = isCompleted(table, row);
+                if (completed) {
                     c.setBackground(COMPLETED_BG);
-                    c.setForeground(new Color(22, 101, 52)); // Dark green text
+                    c.setForeground(COMPLETED_FG);
                 } else {
                     c.setBackground(PENDING_BG);
-                    c.setForeground(new Color(133, 77, 14)); // Dark yellow text
+                    c.setForeground(PENDING_FG);
                 }
 
                 // Colonne statut avec badge
-                if (column == 3) {
-                    setFont(new Font("Segoe UI", Font.BOLD, 12));
-                    if ("Terminé".equals(status)) {
-                        setText("✓ " + status);
-                    } else {
-                        setText("⏳ " + status);
-                    }
+                if (column == TaskTableModel.STATUS_COLUMN && value != null) {
+                    setFont(STATUS_FONT);
+                    setText(badgeLabel((String) value, completed));
                 }
             } else {
                 c.setBackground(PRIMARY_COLOR);
@@ -648,6 +1122,22 @@ public class TaskGUI extends JFrame {
 
             return c;
         }
+
+        private boolean isCompleted(JTable table, int row) {
+            if (table.getModel() instanceof TaskTableModel) {
+                return ((TaskTableModel) table.getModel()).isCompletedAt(table.convertRowIndexToModel(row));
+            }
+            return Task.STATUS_COMPLETED.equals(table.getValueAt(row, TaskTableModel.STATUS_COLUMN));
+        }
+
+        private String badgeLabel(String status, boolean completed) {
+            String label = badgeLabels.get(status);
+            if (label == null) {
+                label = (completed ? "✓ " : "⏳ ") + status;
+                badgeLabels.put(status, label);
+            }
+            return label;
+        }
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,305 @@
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Table identifiant → tâche immuable (arbre de hachage à tableaux compressés, HAMT) :
+ * put et remove renvoient une nouvelle table qui partage tous les nœuds non touchés avec
+ * l'ancienne. Une table publiée peut donc être lue par plusieurs threads sans verrou. Un
+ * lot de modifications passe par un Editor, qui ne recopie chaque nœud qu'une fois.
+ * Les clés sont des long primitifs ; le hachage (multiplication par une constante impaire)
+ * est une bijection sur 64 bits, deux identifiants distincts finissent donc toujours par
+ * se séparer et aucun nœud de collision n'est nécessaire. Profondeur ≤ 13, en pratique
+ * 4 ou 5 niveaux pour un million de tâches : recherche, ajout et suppression en O(1).
+ */
+public final class TaskIdMap {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final Node EMPTY_NODE = new Node(0, new Object[0]);
+    private static final TaskIdMap EMPTY = new TaskIdMap(EMPTY_NODE, 0);
+
+    // Feuille : un identifiant et sa tâche
+    private static final class Entry {
+        final long key;
+        final Task task;
+
+        Entry(long key, Task task) {
+            this.key = key;
+            this.task = task;
+        }
+    }
+
+    // Nœud interne : bitmap des 32 emplacements occupés et tableau compact (Entry ou Node)
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+        // Éditeur qui a créé le nœud : lui seul peut encore changer ses emplacements sur place
+        final Object owner;
+
+        Node(int bitmap, Object[] slots) {
+            this(bitmap, slots, null);
+        }
+
+        Node(int bitmap, Object[] slots, Object owner) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+            this.owner = owner;
+        }
+
+        int indexOf(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    private final Node root;
+    private final int size;
+
+    private TaskIdMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static TaskIdMap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Construit la table pour des tâches dont l'identifiant est déjà attribué (chargement).
+     * Les nœuds sont remplis sur place pendant la construction, sans recopie de chemin.
+     */
+    public static TaskIdMap of(List<Task> tasks) {
+        Object[] root = new Object[1 << BITS];
+        int size = 0;
+        for (Task task : tasks) {
+            if (buildPut(root, hash(task.getId()), 0, new Entry(task.getId(), task))) {
+                size++;
+            }
+        }
+        return new TaskIdMap(compress(root), size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Tâche associée à l'identifiant, null si aucune
+    public Task get(long id) {
+        return get(root, id);
+    }
+
+    private static Task get(Node root, long id) {
+        long h = hash(id);
+        Node node = root;
+        for (int shift = 0; ; shift += BITS) {
+            int bit = 1 << ((int) (h >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[node.indexOf(bit)];
+            if (slot instanceof Node) {
+                node = (Node) slot;
+                continue;
+            }
+            Entry entry = (Entry) slot;
+            return entry.key == id ? entry.task : null;
+        }
+    }
+
+    // Parcourt toutes les tâches, dans un ordre quelconque
+    public void forEach(Consumer<Task> action) {
+        forEach(root, action);
+    }
+
+    private static void forEach(Node node, Consumer<Task> action) {
+        for (Object slot : node.slots) {
+            if (slot instanceof Node) {
+                forEach((Node) slot, action);
+            } else {
+                action.accept(((Entry) slot).task);
+            }
+        }
+    }
+
+    // Nouvelle table où l'identifiant est associé à la tâche
+    public TaskIdMap put(long id, Task task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Tâche nulle");
+        }
+        boolean[] added = new boolean[1];
+        Node newRoot = put(root, hash(id), 0, new Entry(id, task), added, null);
+        return new TaskIdMap(newRoot, added[0] ? size + 1 : size);
+    }
+
+    // Éditeur pour une série de modifications (un lot), partant de cette table
+    public Editor edit() {
+        return new Editor(root, size);
+    }
+
+    /**
+     * Série de put et remove dont chaque nœud n'est recopié qu'une fois : une copie faite
+     * par l'éditeur lui appartient et les modifications suivantes la changent sur place.
+     * build() rend la table, immuable comme les autres ; l'éditeur ne doit plus servir ensuite.
+     */
+    public static final class Editor {
+        private Object owner = new Object();
+        private Node root;
+        private int size;
+        private final boolean[] added = new boolean[1];
+
+        private Editor(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        public void put(long id, Task task) {
+            added[0] = false;
+            root = TaskIdMap.put(root, hash(id), 0, new Entry(id, task), added, owner);
+            if (added[0]) {
+                size++;
+            }
+        }
+
+        public void remove(long id) {
+            if (get(root, id) != null) {
+                Object newRoot = TaskIdMap.remove(root, hash(id), 0, id, owner);
+                root = newRoot instanceof Node ? (Node) newRoot : single((Entry) newRoot);
+                size--;
+            }
+        }
+
+        public TaskIdMap build() {
+            owner = null;
+            return new TaskIdMap(root, size);
+        }
+    }
+
+    // Nouvelle table sans l'identifiant (la même table s'il n'y était pas)
+    public TaskIdMap remove(long id) {
+        if (get(id) == null) {
+            return this;
+        }
+        Object newRoot = remove(root, hash(id), 0, id, null);
+        return new TaskIdMap(newRoot instanceof Node ? (Node) newRoot : single((Entry) newRoot), size - 1);
+    }
+
+    private static Node put(Node node, long h, int shift, Entry entry, boolean[] added, Object owner) {
+        int bit = 1 << ((int) (h >>> shift) & MASK);
+        int index = node.indexOf(bit);
+        if ((node.bitmap & bit) == 0) {
+            added[0] = true;
+            Object[] slots = new Object[node.slots.length + 1];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            slots[index] = entry;
+            System.arraycopy(node.slots, index, slots, index + 1, node.slots.length - index);
+            return new Node(node.bitmap | bit, slots, owner);
+        }
+
+        Object slot = node.slots[index];
+        Object replacement;
+        if (slot instanceof Node) {
+            replacement = put((Node) slot, h, shift + BITS, entry, added, owner);
+        } else if (((Entry) slot).key == entry.key) {
+            replacement = entry;
+        } else {
+            added[0] = true;
+            Entry existing = (Entry) slot;
+            replacement = split(existing, hash(existing.key), entry, h, shift + BITS);
+        }
+        if (owner != null && node.owner == owner) {
+            node.slots[index] = replacement;
+            return node;
+        }
+        Object[] slots = node.slots.clone();
+        slots[index] = replacement;
+        return new Node(node.bitmap, slots, owner);
+    }
+
+    // Sous-arbre contenant deux feuilles dont les hachages coïncident jusqu'à shift
+    private static Node split(Entry a, long ha, Entry b, long hb, int shift) {
+        int bitA = 1 << ((int) (ha >>> shift) & MASK);
+        int bitB = 1 << ((int) (hb >>> shift) & MASK);
+        if (bitA == bitB) {
+            return new Node(bitA, new Object[] { split(a, ha, b, hb, shift + BITS) });
+        }
+        // Comparaison non signée : le bit 31 est le dernier emplacement
+        return Integer.compareUnsigned(bitA, bitB) < 0 ? new Node(bitA | bitB, new Object[] { a, b })
+                : new Node(bitA | bitB, new Object[] { b, a });
+    }
+
+    // Renvoie le nouveau nœud, ou la feuille restante quand le nœud n'en contient plus qu'une
+    private static Object remove(Node node, long h, int shift, long id, Object owner) {
+        int bit = 1 << ((int) (h >>> shift) & MASK);
+        int index = node.indexOf(bit);
+        Object slot = node.slots[index];
+        Object replacement = slot instanceof Node ? remove((Node) slot, h, shift + BITS, id, owner) : null;
+
+        if (replacement == null) {
+            if (node.slots.length == 2 && !(node.slots[1 - index] instanceof Node)) {
+                return node.slots[1 - index];
+            }
+            Object[] slots = new Object[node.slots.length - 1];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            System.arraycopy(node.slots, index + 1, slots, index, slots.length - index);
+            return new Node(node.bitmap & ~bit, slots, owner);
+        }
+        if (node.slots.length == 1 && !(replacement instanceof Node)) {
+            return replacement; // la feuille remonte d'un niveau
+        }
+        if (owner != null && node.owner == owner) {
+            node.slots[index] = replacement;
+            return node;
+        }
+        Object[] slots = node.slots.clone();
+        slots[index] = replacement;
+        return new Node(node.bitmap, slots, owner);
+    }
+
+    private static Node single(Entry entry) {
+        int bit = 1 << ((int) hash(entry.key) & MASK);
+        return new Node(bit, new Object[] { entry });
+    }
+
+    // Insertion en place dans des tableaux pleins de 32 emplacements (construction uniquement)
+    private static boolean buildPut(Object[] slots, long h, int shift, Entry entry) {
+        int index = (int) (h >>> shift) & MASK;
+        Object slot = slots[index];
+        if (slot == null) {
+            slots[index] = entry;
+            return true;
+        }
+        if (slot instanceof Object[]) {
+            return buildPut((Object[]) slot, h, shift + BITS, entry);
+        }
+        Entry existing = (Entry) slot;
+        if (existing.key == entry.key) {
+            slots[index] = entry;
+            return false;
+        }
+        Object[] child = new Object[1 << BITS];
+        slots[index] = child;
+        buildPut(child, hash(existing.key), shift + BITS, existing);
+        return buildPut(child, h, shift + BITS, entry);
+    }
+
+    private static Node compress(Object[] full) {
+        int bitmap = 0;
+        int count = 0;
+        for (int i = 0; i < full.length; i++) {
+            if (full[i] != null) {
+                bitmap |= 1 << i;
+                count++;
+            }
+        }
+        Object[] slots = new Object[count];
+        int index = 0;
+        for (Object slot : full) {
+            if (slot != null) {
+                slots[index++] = slot instanceof Object[] ? compress((Object[]) slot) : slot;
+            }
+        }
+        return new Node(bitmap, slots);
+    }
+
+    private static long hash(long key) {
+        return key * 0x9E3779B97F4A7C15L;
+    }
+}
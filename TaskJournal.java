@@ -0,0 +1,449 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Journal d'écriture anticipée (write-ahead log) des modifications de tâches.
+ * Chaque opération ajoute une courte ligne "séquence|opération|données" en fin de fichier ;
+ * un thread dédié écrit les lignes par lots et fait un seul fsync par lot.
+ * Le compactage replie le journal dans le snapshot binaire (tasks.bin) puis le vide.
+ */
+public class TaskJournal implements Closeable {
+    // Codes d'opération ; les tâches sont désignées par leur identifiant ("id|tâche" ou "id")
+    public static final String ADD = "A";
+    public static final String UPDATE = "U";
+    public static final String DELETE = "D";
+    public static final String COMPLETE = "C";
+    public static final String SORT_BY_DATE = "SD";
+    public static final String SORT_BY_STATUS = "SS";
+    // Lots, une ligne par lot : "premier id|tâche|tâche...", identifiants ("1-500,730"), "statut|identifiants"
+    public static final String BULK_ADD = "BA";
+    public static final String BULK_DELETE = "BD";
+    public static final String BULK_COMPLETE = "BC";
+    public static final String BULK_STATUS = "BS";
+    // Annulation ou rétablissement : "identifiants supprimés|id|tâche|id|tâche..." (tâches remises telles quelles)
+    public static final String RESTORE = "R";
+
+    private static final int MAX_BATCH = 4096;
+
+    private final Path snapshotPath;
+    private final FileChannel channel;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private long sequence;
+    private volatile IOException failure;
+    private boolean closed;
+
+    // Rejoue une opération lue depuis le journal
+    public interface Replayer {
+        void apply(String op, String payload);
+    }
+
+    private static class Compaction {
+        final List<Task> tasks;
+        final long sequence;
+        final int sortOrder;
+        final long lastId;
+
+        Compaction(List<Task> tasks, long sequence, int sortOrder, long lastId) {
+            this.tasks = tasks;
+            this.sequence = sequence;
+            this.sortOrder = sortOrder;
+            this.lastId = lastId;
+        }
+    }
+
+    private static final Object STOP = new Object();
+
+    private TaskJournal(Path snapshotPath, FileChannel channel, long sequence) {
+        this.snapshotPath = snapshotPath;
+        this.channel = channel;
+        this.sequence = sequence;
+        this.writerThread = new Thread(this::runWriter, "task-journal-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Rejoue la fin du journal (les enregistrements postérieurs au snapshot déjà chargé)
+     * et ouvre le journal en ajout. Une dernière ligne incomplète (arrêt brutal pendant
+     * une écriture) est ignorée et tronquée.
+     */
+    public static TaskJournal open(Path snapshotPath, Path journalPath, long snapshotSequence, Replayer replayer)
+            throws IOException {
+        FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long sequence = snapshotSequence;
+        long validLength = 0;
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                // Le compactage le garde bien en dessous ; le fichier est laissé intact
+                throw new IOException("Journal trop volumineux: " + size + " octets");
+            }
+            byte[] content = new byte[(int) size];
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // lecture complète
+            }
+
+            int start = 0;
+            for (int i = 0; i < content.length; i++) {
+                if (content[i] != '\n') {
+                    continue;
+                }
+                String record = new String(content, start, i - start, StandardCharsets.UTF_8);
+                String[] parts = record.split("\\|", 3);
+                long recordSequence;
+                try {
+                    recordSequence = Long.parseLong(parts[0]);
+                } catch (NumberFormatException e) {
+                    break;
+                }
+                if (parts.length < 2) {
+                    break;
+                }
+                if (recordSequence > snapshotSequence) {
+                    replayer.apply(parts[1], parts.length == 3 ? parts[2] : "");
+                }
+                sequence = Math.max(sequence, recordSequence);
+                start = i + 1;
+                validLength = start;
+            }
+
+            channel.truncate(validLength);
+            channel.position(validLength);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        return new TaskJournal(snapshotPath, channel, sequence);
+    }
+
+    // Ajouter une opération au journal (non bloquant, écrite par le thread du journal)
+    public synchronized long append(String op, String payload) {
+        if (closed) {
+            throw new IllegalStateException("Journal fermé");
+        }
+        sequence++;
+        queue.add(sequence + "|" + op + "|" + payload + "\n");
+        return sequence;
+    }
+
+    /**
+     * Demande un compactage en arrière-plan. La liste doit être une vue figée de l'état
+     * correspondant à toutes les opérations déjà ajoutées.
+     */
+    public synchronized void compact(List<Task> tasks, int sortOrder, long lastId) {
+        if (!closed) {
+            queue.add(new Compaction(tasks, sequence, sortOrder, lastId));
+        }
+    }
+
+    // Séquence du dernier enregistrement ajouté
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    // Attendre que tout ce qui a été ajouté soit écrit et synchronisé sur disque
+    public void flush() throws IOException {
+        CountDownLatch barrier = new CountDownLatch(1);
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            queue.add(barrier);
+        }
+        awaitQuietly(barrier);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(STOP);
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Encode une tâche pour le journal. Contrairement à Task.toString(), les champs sont
+     * échappés : un '|' ou un retour à la ligne dans le titre ou la description ne coupe
+     * pas l'enregistrement, et un statut ou une description null reste null à la relecture.
+     */
+    public static String encodeTask(Task task) {
+        StringBuilder sb = new StringBuilder();
+        appendField(sb, task.getTitle());
+        sb.append('|');
+        appendField(sb, task.getDescription());
+        sb.append('|');
+        if (task.getDueDate() != null) {
+            sb.append(task.getDueDate());
+        }
+        sb.append('|');
+        appendField(sb, task.getStatus());
+        return sb.toString();
+    }
+
+    // Inverse de encodeTask, null si l'enregistrement est invalide
+    public static Task decodeTask(String payload) {
+        List<String> fields = decodeFields(payload);
+        return fields.size() == 4 ? decodeTask(fields, 0) : null;
+    }
+
+    // Tâches encodées par encodeTask et mises bout à bout avec '|', null si le lot est invalide
+    public static List<Task> decodeTasks(String payload) {
+        List<String> fields = decodeFields(payload);
+        if (fields.size() % 4 != 0) {
+            return null;
+        }
+        List<Task> tasks = new ArrayList<>(fields.size() / 4);
+        for (int i = 0; i < fields.size(); i += 4) {
+            tasks.add(decodeTask(fields, i));
+        }
+        return tasks;
+    }
+
+    // Tâches précédées chacune de leur identifiant ("id|tâche|id|tâche..."), null si le lot est invalide
+    public static List<Task> decodeTasksWithIds(String payload) {
+        List<String> fields = decodeFields(payload);
+        if (fields.size() % 5 != 0) {
+            return null;
+        }
+        List<Task> tasks = new ArrayList<>(fields.size() / 5);
+        for (int i = 0; i < fields.size(); i += 5) {
+            tasks.add(decodeTask(fields, i + 1).withId(Long.parseLong(fields.get(i))));
+        }
+        return tasks;
+    }
+
+    private static Task decodeTask(List<String> fields, int from) {
+        String date = fields.get(from + 2);
+        return new Task(fields.get(from), fields.get(from + 1), date.isEmpty() ? null : LocalDate.parse(date),
+                fields.get(from + 3));
+    }
+
+    // Un champ seul (statut d'un lot), échappé comme dans encodeTask
+    public static String encodeField(String value) {
+        StringBuilder sb = new StringBuilder();
+        appendField(sb, value);
+        return sb.toString();
+    }
+
+    public static String decodeField(String encoded) {
+        return decodeFields(encoded).get(0);
+    }
+
+    private static List<String> decodeFields(String payload) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean absent = false;
+        for (int i = 0; i < payload.length(); i++) {
+            char c = payload.charAt(i);
+            if (c == '\\' && i + 1 < payload.length()) {
+                char next = payload.charAt(++i);
+                if (next == '0') {
+                    absent = true;
+                } else {
+                    field.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next == 'p' ? '|' : next);
+                }
+            } else if (c == '|') {
+                fields.add(absent ? null : field.toString());
+                field.setLength(0);
+                absent = false;
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(absent ? null : field.toString());
+        return fields;
+    }
+
+    /**
+     * Identifiants croissants d'un lot, les suites consécutives écrites en plages :
+     * "1-500,730,900-901".
+     */
+    public static String encodeIds(long[] ids) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < ids.length;) {
+            int end = i;
+            while (end + 1 < ids.length && ids[end + 1] == ids[end] + 1) {
+                end++;
+            }
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(ids[i]);
+            if (end > i) {
+                sb.append('-').append(ids[end]);
+            }
+            i = end + 1;
+        }
+        return sb.toString();
+    }
+
+    // Inverse de encodeIds
+    public static long[] decodeIds(String encoded) {
+        long[] ids = new long[16];
+        int size = 0;
+        for (String part : encoded.split(",")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            int dash = part.indexOf('-', 1);
+            long first = Long.parseLong(dash < 0 ? part : part.substring(0, dash));
+            long last = dash < 0 ? first : Long.parseLong(part.substring(dash + 1));
+            for (long id = first; id <= last; id++) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                ids[size++] = id;
+            }
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    // Un champ absent (null) s'écrit "\0", distinct du texte vide
+    private static void appendField(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("\\0");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '|':
+                    sb.append("\\p");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<Object> batch = new ArrayList<>();
+        StringBuilder pending = new StringBuilder();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH);
+
+            for (Object item : batch) {
+                if (item instanceof String) {
+                    pending.append((String) item);
+                    continue;
+                }
+                writePending(pending);
+                if (item instanceof Compaction) {
+                    writeSnapshot((Compaction) item);
+                } else if (item instanceof CountDownLatch) {
+                    ((CountDownLatch) item).countDown();
+                } else if (item == STOP) {
+                    running = false;
+                }
+            }
+            writePending(pending);
+            batch.clear();
+        }
+    }
+
+    // Écrire le lot accumulé puis un seul fsync
+    private void writePending(StringBuilder pending) {
+        if (pending.length() == 0) {
+            return;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(pending.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            recordFailure(e);
+        }
+        pending.setLength(0);
+    }
+
+    /**
+     * Écrit le snapshot binaire (fichier temporaire synchronisé puis renommé atomiquement)
+     * puis vide le journal. Un arrêt entre le renommage et la troncature est sans danger :
+     * les enregistrements déjà inclus sont ignorés grâce à la séquence en en-tête.
+     */
+    private void writeSnapshot(Compaction compaction) {
+        try {
+            BinaryTaskSnapshot.write(snapshotPath, compaction.tasks, compaction.sequence, compaction.sortOrder,
+                    compaction.lastId, null);
+            channel.truncate(0);
+            channel.force(true);
+        } catch (IOException e) {
+            recordFailure(e);
+        }
+    }
+
+    /**
+     * Gardée pour flush et close, et signalée tout de suite au gestionnaire d'exceptions du
+     * thread (affichée par l'interface) : la première seulement, les suivantes en découlent.
+     */
+    private void recordFailure(IOException e) {
+        if (failure != null) {
+            return;
+        }
+        failure = e;
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,104 +1,1979 @@
+import java.time.LocalDate;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * Classe pour gérer la liste des tâches (CRUD en mémoire via ArrayList)
+ * Classe pour gérer la liste des tâches (CRUD en mémoire)
+ * Chaque tâche reçoit un identifiant stable : les modifications désignent les tâches par
+ * identifiant, les positions ne servent qu'à l'affichage. Les tâches sont rangées dans des
+ * arbres ordonnés (ordre d'ajout, par date, par statut) maintenus à chaque modification :
+ * trier revient à changer d'ordre actif.
+ *
+ * Utilisable depuis plusieurs threads : tout l'état est un objet immuable (arbres et table
+ * d'identifiants persistants) publié dans un champ volatile. Les lectures (affichage,
+ * sauvegarde) prennent cet état sans verrou et voient toujours un instantané cohérent.
+ * Les écritures sont optimistes : le nouvel état est calculé sans verrou à partir de
+ * l'instantané lu, puis publié seulement s'il n'a pas changé entre-temps (sinon elles
+ * recommencent) ; la courte section de publication ordonne aussi le journal.
+ * Les variantes asynchrones du chargement et de la sauvegarde s'exécutent sur un thread
+ * d'entrées/sorties ; un chargement remplace tout l'état d'un coup à la fin, ou rien.
+ *
+ * Avec Storage.COLUMNS, les tâches chargées sont rangées hors du tas (TaskColumns) : les
+ * arbres ne contiennent que quelques plages de colonnes plus les tâches modifiées depuis le
+ * chargement, et les tris et la recherche parcourent directement les colonnes.
+ *
+ * En mode journal, setAutosave diffère l'écriture : seuls les identifiants modifiés sont
+ * retenus, et un thread d'arrière-plan écrit l'état final de chacun (une rafale de
+ * modifications d'une même tâche donne un seul enregistrement) à intervalle régulier ou
+ * dès qu'un seuil est atteint. closeJournal écrit ce qui reste avant de fermer.
+ *
+ * Les opérations par lot (addTasks, completeTasksById, deleteTasksById, setStatusById)
+ * construisent le nouvel état en une passe (arbres et bitmaps modifiés d'un bloc), écrivent
+ * un seul enregistrement de journal et un seul événement par observateur.
+ *
+ * Chaque modification publiée garde dans l'historique les états avant et après : undo et
+ * redo republient l'état voulu (les arbres persistants partagent presque tout entre
+ * versions, une modification de plus coûte O(log N) par tâche touchée) et le journalisent
+ * comme un lot. Un chargement vide l'historique.
  */
 public class TaskManager {
-    private ArrayList<Task> tasks;
-    private static final String SAVE_FILE = "tasks.txt";
+    // Ordres d'affichage disponibles
+    public enum SortOrder {
+        INSERTION, DATE, STATUS
+    }
+
+    // Rangement des tâches chargées : objets sur le tas, ou colonnes hors du tas
+    public enum Storage {
+        HEAP, COLUMNS
+    }
+
+    /**
+     * Observateur des modifications, appelé sous le verrou de publication dans l'ordre des
+     * états : il doit rendre la main vite (au besoin en confiant le travail à un autre thread).
+     */
+    public interface ChangeListener {
+        // Ajout : previous est null ; suppression : next est null
+        void taskChanged(Task previous, Task next);
+
+        // Tout l'état a été remplacé (chargement)
+        void tasksReplaced();
+
+        // Lot (previous.get(i) remplacée par next.get(i), par identifiant croissant) ; par défaut tâche par tâche
+        default void tasksChanged(List<Task> previous, List<Task> next) {
+            for (int i = 0; i < previous.size(); i++) {
+                taskChanged(previous.get(i), next.get(i));
+            }
+        }
+    }
+
+    // Avancement d'un chargement ou d'une sauvegarde, appelé sur le thread d'entrées/sorties.
+    // totalBytes ou totalTasks vaut -1 quand le total n'est pas connu à l'avance.
+    public interface ProgressListener {
+        void progress(long bytes, long totalBytes, int tasks, int totalTasks);
+    }
+
+    private static final ProgressListener NO_PROGRESS = (bytes, totalBytes, tasks, totalTasks) -> {
+    };
+
+    // Un seul thread : les chargements et sauvegardes s'exécutent dans l'ordre de leur demande
+    private static final ExecutorService IO_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "task-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Écritures différées de tous les gestionnaires (setAutosave)
+    private static final ScheduledExecutorService AUTOSAVE = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "task-autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Comparator<Task> BY_ID = (a, b) -> Long.compare(a.getId(), b.getId());
+    // Sans échéance en dernier
+    private static final Comparator<Task> BY_DATE = (a, b) -> a.getDueEpochDay() == b.getDueEpochDay()
+            ? Long.compare(a.getId(), b.getId())
+            : Long.compare(dueKey(a), dueKey(b));
+    private static final Comparator<String> STATUS_ORDER = Comparator.nullsLast(Comparator.naturalOrder());
+    // Même code, même libellé : les libellés ne sont comparés qu'entre statuts différents
+    private static final Comparator<Task> BY_STATUS = (a, b) -> a.getStatusCode() == b.getStatusCode()
+            ? Long.compare(a.getId(), b.getId())
+            : STATUS_ORDER.compare(a.getStatus(), b.getStatus());
+    // Tri des requêtes (sort:title) seulement : aucune vue ne le maintient
+    private static final Comparator<Task> BY_TITLE = Comparator.comparing(Task::getTitle,
+            Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)).thenComparing(BY_ID);
+
+    /**
+     * État complet à un instant donné. Jamais modifié après publication : une modification
+     * construit un nouvel état qui partage presque tout avec l'ancien.
+     */
+    private static final class State {
+        static final State EMPTY = new State(null, TaskIdMap.empty(), TaskIdMap.empty(), TaskTree.empty(BY_ID), null,
+                null, SortOrder.INSERTION, 0, TaskStatusIndex.EMPTY);
+
+        // Tâches chargées hors du tas (null en Storage.HEAP)
+        final TaskColumns columns;
+        // Tâches qui ne sont pas (ou plus) lues dans les colonnes : toutes en Storage.HEAP
+        final TaskIdMap tasksById;
+        // Tâches des colonnes supprimées ou remplacées depuis le chargement
+        final TaskIdMap removedColumns;
+        final TaskTree byId;
+        // Vues triées construites au premier tri correspondant, puis maintenues ; null avant
+        final TaskTree byDate;
+        final TaskTree byStatus;
+        final SortOrder sortOrder;
+        final long lastId;
+        // Identifiants par statut et tâches en retard, toujours à jour
+        final TaskStatusIndex statuses;
+
+        State(TaskColumns columns, TaskIdMap tasksById, TaskIdMap removedColumns, TaskTree byId, TaskTree byDate,
+                TaskTree byStatus, SortOrder sortOrder, long lastId, TaskStatusIndex statuses) {
+            this.columns = columns;
+            this.tasksById = tasksById;
+            this.removedColumns = removedColumns;
+            this.byId = byId;
+            this.byDate = byDate;
+            this.byStatus = byStatus;
+            this.sortOrder = sortOrder;
+            this.lastId = lastId;
+            this.statuses = statuses;
+        }
+
+        Task get(long id) {
+            Task task = tasksById.get(id);
+            if (task != null || columns == null || removedColumns.get(id) != null) {
+                return task;
+            }
+            int row = columns.rowOf(id);
+            return row >= 0 ? columns.task(row) : null;
+        }
+
+        // previous (s'il existe) remplacé par next (s'il existe) dans la table et toutes les vues
+        State replace(Task previous, Task next, long newLastId) {
+            TaskIdMap map = tasksById;
+            TaskIdMap removed = removedColumns;
+            TaskTree id = byId;
+            TaskTree date = byDate;
+            TaskTree status = byStatus;
+            if (previous != null) {
+                if (columns != null && columns.contains(previous)) {
+                    removed = removed.put(previous.getId(), previous);
+                } else {
+                    map = map.remove(previous.getId());
+                }
+                id = id.remove(previous);
+                date = date != null ? date.remove(previous) : null;
+                status = status != null ? status.remove(previous) : null;
+            }
+            if (next != null) {
+                map = map.put(next.getId(), next);
+                id = id.insert(next);
+                date = date != null ? date.insert(next) : null;
+                status = status != null ? status.insert(next) : null;
+            }
+            return new State(columns, map, removed, id, date, status, sortOrder, newLastId,
+                    statuses.replace(previous, next));
+        }
+
+        /**
+         * Lot de remplacements par identifiant croissant (previous.get(i) par next.get(i)) :
+         * chaque arbre est modifié une fois pour tout le lot, trié dans son ordre.
+         */
+        State replaceAll(List<Task> previous, List<Task> next, long newLastId) {
+            TaskIdMap.Editor map = tasksById.edit();
+            TaskIdMap.Editor removed = removedColumns.edit();
+            for (int i = 0; i < previous.size(); i++) {
+                Task old = previous.get(i);
+                Task task = next.get(i);
+                if (old != null && columns != null && columns.contains(old)) {
+                    removed.put(old.getId(), old);
+                } else if (old != null && task == null) {
+                    map.remove(old.getId());
+                }
+                if (task != null) {
+                    map.put(task.getId(), task);
+                }
+            }
+            return new State(columns, map.build(), removed.build(), replaceAll(byId, previous, next),
+                    replaceAll(byDate, previous, next), replaceAll(byStatus, previous, next), sortOrder, newLastId,
+                    statuses.replaceAll(previous, next));
+        }
+
+        // Les tâches qui gardent leur place dans l'ordre de view y sont remplacées sur place
+        private static TaskTree replaceAll(TaskTree view, List<Task> previous, List<Task> next) {
+            if (view == null) {
+                return null;
+            }
+            Comparator<Task> order = view.comparator();
+            List<Task> replaced = new ArrayList<>();
+            List<Task> removed = new ArrayList<>();
+            List<Task> added = new ArrayList<>();
+            for (int i = 0; i < previous.size(); i++) {
+                Task old = previous.get(i);
+                Task task = next.get(i);
+                if (old != null && task != null && order.compare(old, task) == 0) {
+                    replaced.add(task);
+                    continue;
+                }
+                if (old != null) {
+                    removed.add(old);
+                }
+                if (task != null) {
+                    added.add(task);
+                }
+            }
+            replaced.sort(order);
+            removed.sort(order);
+            added.sort(order);
+            return view.replaceAll(replaced).removeAll(removed).insertAll(added);
+        }
+
+        State withSortOrder(SortOrder order) {
+            return new State(columns, tasksById, removedColumns, byId, byDate, byStatus, order, lastId, statuses);
+        }
+
+        State withLastId(long newLastId) {
+            return newLastId == lastId ? this
+                    : new State(columns, tasksById, removedColumns, byId, byDate, byStatus, sortOrder, newLastId,
+                            statuses);
+        }
+
+        State withStatuses(TaskStatusIndex updated) {
+            return new State(columns, tasksById, removedColumns, byId, byDate, byStatus, sortOrder, lastId, updated);
+        }
+
+        State withView(SortOrder order, TaskTree view) {
+            return order == SortOrder.DATE
+                    ? new State(columns, tasksById, removedColumns, byId, view, byStatus, sortOrder, lastId, statuses)
+                    : new State(columns, tasksById, removedColumns, byId, byDate, view, sortOrder, lastId, statuses);
+        }
+
+        /**
+         * Construit la vue d'un ordre. Avec des colonnes, l'ordre précalculé des colonnes est
+         * repris tel quel puis corrigé des seules modifications faites depuis le chargement.
+         */
+        TaskTree buildView(SortOrder order) {
+            Comparator<Task> comparator = comparator(order);
+            if (columns == null) {
+                List<Task> sorted = new ArrayList<>(byId.asList());
+                sorted.sort(comparator);
+                return TaskTree.fromSorted(sorted, comparator);
+            }
+            TaskTree[] view = { TaskTree.fromColumns(order == SortOrder.DATE ? columns.byDate() : columns.byStatus(),
+                    comparator) };
+            removedColumns.forEach(task -> view[0] = view[0].remove(task));
+            tasksById.forEach(task -> view[0] = view[0].insert(task));
+            return view[0];
+        }
+
+        // task si elle est dans l'index de recherche de cet état, null si elle est lue dans les colonnes
+        Task indexed(Task task) {
+            return task == null || columns == null || tasksById.get(task.getId()) == task ? task : null;
+        }
+
+        // Tâches à indexer pour la recherche : celles qui ne sont pas lues dans les colonnes
+        List<Task> indexedTasks() {
+            if (columns == null) {
+                return byId.asList();
+            }
+            List<Task> tasks = new ArrayList<>(tasksById.size());
+            tasksById.forEach(tasks::add);
+            tasks.sort(BY_ID);
+            return tasks;
+        }
+
+        TaskTree active() {
+            return view(sortOrder);
+        }
+
+        TaskTree view(SortOrder order) {
+            switch (order) {
+                case DATE:
+                    return byDate;
+                case STATUS:
+                    return byStatus;
+                default:
+                    return byId;
+            }
+        }
+    }
+
+    /**
+     * Modification gardée dans l'historique : previous.get(i) remplacée par next.get(i) (null :
+     * absente) pour l'identifiant ids[i], par identifiant croissant. before et after sont les
+     * états publiés avant et après, null quand l'un n'a pas été publié tel quel (il faut alors
+     * rejouer les tâches une à une).
+     */
+    private static final class Edit {
+        final State before;
+        final State after;
+        final long[] ids;
+        final List<Task> previous;
+        final List<Task> next;
+
+        Edit(State before, State after, long[] ids, List<Task> previous, List<Task> next) {
+            this.before = before;
+            this.after = after;
+            this.ids = ids;
+            this.previous = previous;
+            this.next = next;
+        }
+    }
+
+    private final Storage storage;
+    private volatile State state = State.EMPTY;
+    // Publication des états, journal, index de recherche et cycle de vie du journal
+    private final Object commitLock = new Object();
+
+    private static final String SAVE_FILE = "tasks.bin";
+    // Ancien format texte "titre|description|date|statut", lu une dernière fois pour migration
+    private static final String LEGACY_SAVE_FILE = "tasks.txt";
+    private static final String LEGACY_JOURNAL_HEADER = "#journal|";
+    private static final String JOURNAL_FILE = "tasks.journal";
+    // Nombre d'opérations journalisées avant de replier le journal dans le snapshot
+    private static final int COMPACTION_THRESHOLD = 10_000;
+    // Taille des lots de importTasks
+    private static final int IMPORT_BATCH = 4096;
+    // Modifications gardées par défaut pour undo
+    private static final int DEFAULT_UNDO_LIMIT = 1000;
+    // Avancement signalé toutes les 65 536 tâches
+    private static final int PROGRESS_MASK = (1 << 16) - 1;
+
+    private volatile TaskJournal journal;
+    private int journaledSinceCompaction;
+    // Vrai pendant le rejeu d'un journal écrit avant les identifiants (tâches désignées par position)
+    private boolean positionalJournal;
+    // Écriture différée (sous commitLock) : 0 ms écrit chaque opération aussitôt dans le journal
+    private long autosaveMillis;
+    private int autosaveThreshold;
+    private ScheduledFuture<?> autosaveTask;
+    private boolean flushRequested;
+    // Identifiants modifiés depuis la dernière écriture, associés à leur présence dans le journal
+    // à ce moment-là (décide entre ajout et modification, ou rien pour une tâche jamais écrite)
+    private HashMap<Long, Boolean> dirty = new HashMap<>();
+    private boolean sortOrderDirty;
+    // Construit à la première recherche ; null tant qu'il n'est pas nécessaire.
+    // Modifié sous commitLock puis son propre moniteur, interrogé sous son seul moniteur.
+    private volatile TaskSearchIndex searchIndex;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // Historique (sous commitLock), le plus récent en tête : modifications à annuler, puis à rétablir
+    private final ArrayDeque<Edit> undoHistory = new ArrayDeque<>();
+    private final ArrayDeque<Edit> redoHistory = new ArrayDeque<>();
+    private int undoLimit = DEFAULT_UNDO_LIMIT;
 
     public TaskManager() {
-        this.tasks = new ArrayList<>();
+        this(Storage.HEAP);
+    }
+
+    public TaskManager(Storage storage) {
+        this.storage = storage;
+    }
+
+    // Ajouter une tâche ; renvoie son identifiant
+    public long addTask(Task task) {
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            String encoded = TaskJournal.encodeTask(task);
+            while (true) {
+                State current = state;
+                long id = current.lastId + 1;
+                Task added = task.withId(id);
+                State updated = current.replace(null, added, id);
+                if (publish(current, updated, null, added, TaskJournal.ADD, id + "|" + encoded)) {
+                    return id;
+                }
+            }
+        } finally {
+            TaskMetrics.ADD.record(started, allocated);
+        }
+    }
+
+    // Obtenir une tâche par identifiant (null si inconnu)
+    public Task getTaskById(long id) {
+        return state.get(id);
+    }
+
+    // Position de la tâche dans l'ordre actif (-1 si l'identifiant est inconnu)
+    public int indexOfTask(long id) {
+        State current = snapshot();
+        Task task = current.get(id);
+        return task != null ? current.active().indexOf(task) : -1;
+    }
+
+    // Modifier une tâche ; la nouvelle version garde l'identifiant (false si inconnu)
+    public boolean updateTaskById(long id, Task updatedTask) {
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            String payload = id + "|" + TaskJournal.encodeTask(updatedTask);
+            Task replacement = updatedTask.withId(id);
+            while (true) {
+                State current = state;
+                Task previous = current.get(id);
+                if (previous == null) {
+                    return false;
+                }
+                State updated = current.replace(previous, replacement, current.lastId);
+                if (publish(current, updated, previous, replacement, TaskJournal.UPDATE, payload)) {
+                    return true;
+                }
+            }
+        } finally {
+            TaskMetrics.UPDATE.record(started, allocated);
+        }
+    }
+
+    // Supprimer une tâche (false si l'identifiant est inconnu)
+    public boolean deleteTaskById(long id) {
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            while (true) {
+                State current = state;
+                Task removed = current.get(id);
+                if (removed == null) {
+                    return false;
+                }
+                State updated = current.replace(removed, null, current.lastId);
+                if (publish(current, updated, removed, null, TaskJournal.DELETE, String.valueOf(id))) {
+                    return true;
+                }
+            }
+        } finally {
+            TaskMetrics.DELETE.record(started, allocated);
+        }
+    }
+
+    // Marquer une tâche comme terminée (false si l'identifiant est inconnu)
+    public boolean markAsCompletedById(long id) {
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            while (true) {
+                State current = state;
+                Task task = current.get(id);
+                if (task == null) {
+                    return false;
+                }
+                Task completed = task.asCompleted();
+                State updated = current.replace(task, completed, current.lastId);
+                if (publish(current, updated, task, completed, TaskJournal.COMPLETE, String.valueOf(id))) {
+                    return true;
+                }
+            }
+        } finally {
+            TaskMetrics.COMPLETE.record(started, allocated);
+        }
+    }
+
+    // Obtenir toutes les tâches dans l'ordre actif (instantané en lecture seule)
+    public List<Task> getAllTasks() {
+        return snapshot().active().asList();
+    }
+
+    // Flux paresseux des tâches dans l'ordre actif, sur l'instantané courant (rien n'est copié)
+    public Stream<Task> stream() {
+        TaskTree active = snapshot().active();
+        return StreamSupport.stream(Spliterators.spliterator(active.iterator(), active.size(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    // Éditeur des tâches de l'instantané pris à chaque abonnement (voir TaskExchange)
+    public Flow.Publisher<Task> publisher() {
+        return TaskExchange.publisher(() -> snapshot().active().iterator(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Abonné qui ajoute les tâches reçues (avec de nouveaux identifiants), batchSize à la
+     * fois en un lot (addTasks) ; completion() donne le nombre ajouté.
+     */
+    public TaskExchange.SinkSubscriber subscriber(int batchSize) {
+        List<Task> batch = new ArrayList<>();
+        return TaskExchange.subscriber(new TaskExchange.TaskSink() {
+            @Override
+            public void accept(Task task) {
+                batch.add(task);
+                if (batch.size() >= batchSize) {
+                    addTasks(batch);
+                    batch.clear();
+                }
+            }
+
+            @Override
+            public void finish() {
+                addTasks(batch);
+                batch.clear();
+            }
+        }, batchSize);
+    }
+
+    // Ajouter les tâches d'un itérateur au fil de la lecture, par lots ; renvoie le nombre ajouté
+    public long importTasks(Iterator<Task> tasks) {
+        long count = 0;
+        List<Task> batch = new ArrayList<>(IMPORT_BATCH);
+        while (tasks.hasNext()) {
+            batch.add(tasks.next());
+            if (batch.size() == IMPORT_BATCH || !tasks.hasNext()) {
+                addTasks(batch);
+                count += batch.size();
+                batch.clear();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Ajouter plusieurs tâches d'un coup : elles reçoivent des identifiants consécutifs dans
+     * l'ordre de la liste. Renvoie celui de la première (0 si la liste est vide).
+     */
+    public long addTasks(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            StringBuilder encoded = new StringBuilder();
+            for (Task task : tasks) {
+                encoded.append('|').append(TaskJournal.encodeTask(task));
+            }
+            List<Task> none = Collections.nCopies(tasks.size(), null);
+            while (true) {
+                State current = state;
+                long first = current.lastId + 1;
+                List<Task> added = new ArrayList<>(tasks.size());
+                for (int i = 0; i < tasks.size(); i++) {
+                    added.add(tasks.get(i).withId(first + i));
+                }
+                State updated = current.replaceAll(none, added, first + tasks.size() - 1);
+                if (publishBatch(current, updated, none, added, TaskJournal.BULK_ADD, first + encoded.toString())) {
+                    return first;
+                }
+            }
+        } finally {
+            TaskMetrics.BATCH.record(started, allocated);
+        }
+    }
+
+    // Marquer terminées les tâches désignées en un lot ; renvoie le nombre de tâches modifiées
+    public int completeTasksById(long[] ids) {
+        return applyBatch(ids, task -> task.isCompleted() ? task : task.asCompleted(), TaskJournal.BULK_COMPLETE,
+                "");
     }
 
-    // Ajouter une tâche
-    public void addTask(Task task) {
-        tasks.add(task);
+    // Supprimer les tâches désignées en un lot (les identifiants inconnus sont ignorés)
+    public int deleteTasksById(long[] ids) {
+        return applyBatch(ids, task -> null, TaskJournal.BULK_DELETE, "");
     }
 
-    // Modifier une tâche
-    public void updateTask(int index, Task updatedTask) {
-        if (index >= 0 && index < tasks.size()) {
-            tasks.set(index, updatedTask);
+    // Donner le même statut aux tâches désignées en un lot ; renvoie le nombre de tâches modifiées
+    public int setStatusById(long[] ids, String status) {
+        Short code = Task.knownStatusCode(status);
+        return applyBatch(ids, task -> code != null && task.getStatusCode() == code ? task : task.withStatus(status),
+                TaskJournal.BULK_STATUS, TaskJournal.encodeField(status) + "|");
+    }
+
+    /**
+     * Applique change (null : supprimer, la tâche elle-même : ne rien faire) aux tâches
+     * existantes parmi ids, publié comme un seul état et journalisé en un enregistrement
+     * (prefix puis les identifiants modifiés).
+     */
+    private int applyBatch(long[] ids, UnaryOperator<Task> change, String op, String prefix) {
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            long[] sorted = ids.clone();
+            Arrays.sort(sorted);
+            while (true) {
+                State current = state;
+                List<Task> previous = new ArrayList<>();
+                List<Task> next = new ArrayList<>();
+                long[] changed = new long[sorted.length];
+                for (int i = 0; i < sorted.length; i++) {
+                    Task task = i > 0 && sorted[i] == sorted[i - 1] ? null : current.get(sorted[i]);
+                    Task replacement = task != null ? change.apply(task) : task;
+                    if (task != null && replacement != task) {
+                        changed[previous.size()] = task.getId();
+                        previous.add(task);
+                        next.add(replacement);
+                    }
+                }
+                if (previous.isEmpty()) {
+                    return 0;
+                }
+                State updated = current.replaceAll(previous, next, current.lastId);
+                String payload = prefix + TaskJournal.encodeIds(Arrays.copyOf(changed, previous.size()));
+                if (publishBatch(current, updated, previous, next, op, payload)) {
+                    return previous.size();
+                }
+            }
+        } finally {
+            TaskMetrics.BATCH.record(started, allocated);
         }
     }
 
-    // Supprimer une tâche
-    public void deleteTask(int index) {
-        if (index >= 0 && index < tasks.size()) {
-            tasks.remove(index);
+    /**
+     * Annuler la dernière modification (ajout, modification, suppression ou lot) ; false si
+     * l'historique est vide. Les tâches reprennent leur version d'avant, sous le même
+     * identifiant ; une tâche ajoutée puis annulée garde son identifiant consommé.
+     */
+    public boolean undo() {
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            synchronized (commitLock) {
+                Edit edit = undoHistory.pollFirst();
+                if (edit == null) {
+                    return false;
+                }
+                // Rien n'a changé depuis : l'état d'avant est republié tel quel
+                boolean exact = state == edit.after && edit.before != null;
+                State restored = restore(exact ? edit.before : null, edit.ids, edit.previous);
+                push(redoHistory, new Edit(restored, exact ? edit.after : null, edit.ids, edit.previous, edit.next));
+                return true;
+            }
+        } finally {
+            TaskMetrics.UNDO.record(started, allocated);
         }
     }
 
-    // Obtenir toutes les tâches
-    public ArrayList<Task> getAllTasks() {
-        return tasks;
+    // Rétablir la dernière modification annulée ; false s'il n'y en a pas (ou plus, après une modification)
+    public boolean redo() {
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            synchronized (commitLock) {
+                Edit edit = redoHistory.pollFirst();
+                if (edit == null) {
+                    return false;
+                }
+                boolean exact = state == edit.before && edit.after != null;
+                State redone = restore(exact ? edit.after : null, edit.ids, edit.next);
+                push(undoHistory, new Edit(exact ? edit.before : null, redone, edit.ids, edit.previous, edit.next));
+                return true;
+            }
+        } finally {
+            TaskMetrics.UNDO.record(started, allocated);
+        }
+    }
+
+    public boolean canUndo() {
+        synchronized (commitLock) {
+            return !undoHistory.isEmpty();
+        }
+    }
+
+    public boolean canRedo() {
+        synchronized (commitLock) {
+            return !redoHistory.isEmpty();
+        }
+    }
+
+    // Nombre de modifications gardées pour undo (0 : pas d'historique) ; les plus anciennes sont oubliées
+    public void setUndoLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limite d'historique négative: " + limit);
+        }
+        synchronized (commitLock) {
+            undoLimit = limit;
+            trim(undoHistory);
+            trim(redoHistory);
+        }
     }
 
     // Obtenir une tâche par index
     public Task getTask(int index) {
-        if (index >= 0 && index < tasks.size()) {
-            return tasks.get(index);
+        State current = snapshot();
+        if (index >= 0 && index < current.byId.size()) {
+            return current.active().get(index);
         }
         return null;
     }
 
-    // Rechercher des tâches par titre ou statut
+    // Rechercher des tâches par titre, statut ou description (via l'index de trigrammes)
     public List<Task> searchTasks(String query) {
-        String lowerQuery = query.toLowerCase();
-        return tasks.stream()
-                .filter(task -> task.getTitle().toLowerCase().contains(lowerQuery) ||
-                        task.getStatus().toLowerCase().contains(lowerQuery) ||
-                        task.getDescription().toLowerCase().contains(lowerQuery))
-                .collect(Collectors.toList());
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            State current = state;
+            List<Task> results = searchCandidates(current, query);
+            SortOrder order = current.sortOrder;
+            if (order != SortOrder.INSERTION || current.columns != null) {
+                results.sort(comparator(order));
+            }
+            return results;
+        } finally {
+            TaskMetrics.SEARCH.record(started, allocated);
+        }
+    }
+
+    // Requête écrite dans la syntaxe de TaskQuery (IllegalArgumentException si elle est invalide)
+    public TaskQuery.Cursor query(String query) {
+        return query(TaskQuery.parse(query));
     }
 
-    // Trier par date d'échéance
+    /**
+     * Exécute une requête sur l'état courant. Parmi les conditions liées par AND, le plan
+     * choisit le chemin d'accès le moins coûteux : une plage de la vue par date, dont la
+     * taille se compte exactement en O(log n), le bitmap des statuts demandés (taille en
+     * O(1)), l'index de texte, ou à défaut le parcours de toutes les tâches. Les candidats
+     * sont ensuite intersectés avec le bitmap de statut, puis testés sur toute la requête.
+     *
+     * Quand le chemin suit déjà l'ordre demandé, les résultats sont produits au fil de la
+     * lecture et la première page arrive sans attendre les suivantes ; sinon ils sont triés
+     * d'abord, en ne gardant que les limit premiers.
+     */
+    public TaskQuery.Cursor query(TaskQuery query) {
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            List<TaskQuery.Node> conjuncts = query.conjuncts();
+            TaskQuery.Text text = null;
+            boolean byDate = false;
+            for (TaskQuery.Node condition : conjuncts) {
+                if (condition instanceof TaskQuery.DueRange) {
+                    byDate = true;
+                } else if (condition instanceof TaskQuery.Text && !((TaskQuery.Text) condition).exact) {
+                    // Le mot le plus long a le moins d'occurrences dans l'index
+                    TaskQuery.Text candidate = (TaskQuery.Text) condition;
+                    if (candidate.lowerValue.length() >= 3
+                            && (text == null || candidate.lowerValue.length() > text.lowerValue.length())) {
+                        text = candidate;
+                    }
+                }
+            }
+            // Vue par date construite au besoin, puis maintenue comme celles des tris
+            State current = byDate ? snapshot(SortOrder.DATE) : state;
+
+            Range best = null;
+            // Intersection des bitmaps des égalités de statut ; un seul libellé retenu garde
+            // aussi l'ordre par statut (statut puis identifiant)
+            TaskBitmap statusIds = null;
+            boolean singleLabel = false;
+            for (TaskQuery.Node condition : conjuncts) {
+                if (condition instanceof TaskQuery.DueRange && current.byDate != null) {
+                    Range range = dateRange(current.byDate, (TaskQuery.DueRange) condition);
+                    if (best == null || range.size() < best.size()) {
+                        best = range;
+                    }
+                } else if (isStatusEquality(condition)) {
+                    List<Short> codes = statusCodes(((TaskQuery.Text) condition).lowerValue);
+                    TaskBitmap ids = TaskBitmap.empty();
+                    for (short code : codes) {
+                        ids = ids.or(current.statuses.bitmap(code));
+                    }
+                    statusIds = statusIds == null ? ids : statusIds.and(ids);
+                    singleLabel |= codes.size() == 1;
+                }
+            }
+
+            TaskQuery.SortKey key = query.getSortKey() != null ? query.getSortKey() : sortKey(current.sortOrder);
+            Comparator<Task> order = comparator(key);
+            if (query.isDescending()) {
+                order = order.reversed();
+            }
+            // Coûts estimés en tâches lues. Un chemin hors de l'ordre demandé doit en plus
+            // retenir puis trier ses résultats ; l'index de texte est supposé sélectif, mais en
+            // colonnes il s'accompagne d'un parcours de toutes les colonnes. Le parcours suit
+            // l'ordre demandé quand une vue le maintient : avec une limite, il s'arrête après
+            // environ limit / sélectivité tâches (sélectivité estimée par la plage ou le bitmap).
+            int total = current.byId.size();
+            boolean orderedScan = key != TaskQuery.SortKey.TITLE;
+            boolean statusOrdered = !query.isDescending()
+                    && (key == TaskQuery.SortKey.ID || (key == TaskQuery.SortKey.STATUS && singleLabel));
+            long matches = total;
+            if (best != null) {
+                matches = Math.min(matches, best.size());
+            }
+            if (statusIds != null) {
+                matches = Math.min(matches, statusIds.cardinality());
+            }
+            long scanCost = total;
+            if (orderedScan && query.getLimit() >= 0) {
+                scanCost = Math.min(total, (query.getLimit() + 1L) * total / Math.max(1, matches));
+            }
+            long rangeCost = best == null ? Long.MAX_VALUE : best.size() * (best.order == key ? 1L : 4L);
+            long statusCost = statusIds == null ? Long.MAX_VALUE
+                    : statusIds.cardinality() * (statusOrdered ? 1L : 4L);
+            long textCost = text == null ? Long.MAX_VALUE : current.columns != null ? total : total / 16;
+
+            if (statusCost < scanCost && statusCost <= rangeCost && statusCost <= textCost) {
+                return plannedCursor(query, bitmapTasks(current, statusIds), statusOrdered, order,
+                        "bitmap de statut (" + statusIds.cardinality() + " candidats)");
+            }
+            // Les autres chemins écartent d'abord les identifiants absents du bitmap de statut
+            String intersection = statusIds != null ? " ∩ bitmap de statut" : "";
+            if (rangeCost < scanCost && rangeCost <= textCost) {
+                return plannedCursor(query, intersect(best.iterator(query.isDescending()), statusIds),
+                        best.order == key, order, best.description + intersection + " (" + best.size() + " candidats)");
+            }
+            if (textCost < scanCost) {
+                List<Task> candidates = searchCandidates(current, text.lowerValue);
+                return plannedCursor(query, intersect(candidates.iterator(), statusIds), false, order,
+                        "index de texte « " + text.lowerValue + " »" + intersection + " (" + candidates.size()
+                                + " candidats)");
+            }
+            TaskTree view = current.byId;
+            if (orderedScan) {
+                SortOrder viewOrder = key == TaskQuery.SortKey.DUE ? SortOrder.DATE
+                        : key == TaskQuery.SortKey.STATUS ? SortOrder.STATUS : SortOrder.INSERTION;
+                current = snapshot(viewOrder);
+                view = current.view(viewOrder);
+            }
+            Range all = new Range(view, orderedScan ? key : TaskQuery.SortKey.ID, "parcours", 0, view.size());
+            return plannedCursor(query, intersect(all.iterator(query.isDescending()), statusIds), all.order == key,
+                    order, "parcours" + intersection + " (" + view.size() + " tâches)");
+        } finally {
+            TaskMetrics.QUERY.record(started, allocated);
+        }
+    }
+
+    /**
+     * Curseur sur les candidats d'un chemin d'accès : testés au fil de la lecture s'ils sont
+     * déjà dans l'ordre demandé, sinon retenus puis triés (tas des limit premiers si la
+     * requête en fixe une).
+     */
+    private static TaskQuery.Cursor plannedCursor(TaskQuery query, Iterator<Task> candidates, boolean ordered,
+            Comparator<Task> order, String plan) {
+        if (ordered) {
+            return new TaskQuery.Cursor(candidates, query, true, plan + ", dans l'ordre");
+        }
+        int limit = query.getLimit();
+        List<Task> results;
+        if (limit >= 0) {
+            PriorityQueue<Task> top = new PriorityQueue<>(Math.max(1, Math.min(limit, 1024)), order.reversed());
+            while (candidates.hasNext()) {
+                Task task = candidates.next();
+                // Une fois le tas plein, seule une tâche meilleure que la moins bonne y entre
+                if (limit > 0 && (top.size() < limit || order.compare(task, top.peek()) < 0) && query.test(task)) {
+                    top.add(task);
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+            results = new ArrayList<>(top);
+        } else {
+            results = new ArrayList<>();
+            while (candidates.hasNext()) {
+                Task task = candidates.next();
+                if (query.test(task)) {
+                    results.add(task);
+                }
+            }
+        }
+        results.sort(order);
+        return new TaskQuery.Cursor(results.iterator(), query, false, plan + ", trié");
+    }
+
+    // status:x ou status=x : une égalité, servie par les bitmaps de statut
+    private static boolean isStatusEquality(TaskQuery.Node condition) {
+        return condition instanceof TaskQuery.Text && ((TaskQuery.Text) condition).field == TaskQuery.Field.STATUS
+                && ((TaskQuery.Text) condition).exact;
+    }
+
+    // Codes des statuts égaux à lowerValue sans tenir compte de la casse
+    private static List<Short> statusCodes(String lowerValue) {
+        List<Short> codes = new ArrayList<>();
+        int statusCount = Task.statusCount();
+        for (int code = 0; code < statusCount; code++) {
+            if (Task.statusLabel((short) code).toLowerCase(Locale.ROOT).equals(lowerValue)) {
+                codes.add((short) code);
+            }
+        }
+        return codes;
+    }
+
+    // Tâches du bitmap, par identifiant croissant, lues dans l'état qui l'a produit
+    private static Iterator<Task> bitmapTasks(State current, TaskBitmap ids) {
+        PrimitiveIterator.OfLong iterator = ids.iterator();
+        return new Iterator<Task>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Task next() {
+                return current.get(iterator.nextLong());
+            }
+        };
+    }
+
+    // Candidats dont l'identifiant est dans ids (tous si ids est null)
+    private static Iterator<Task> intersect(Iterator<Task> candidates, TaskBitmap ids) {
+        if (ids == null) {
+            return candidates;
+        }
+        return new Iterator<Task>() {
+            private Task next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && candidates.hasNext()) {
+                    Task candidate = candidates.next();
+                    if (ids.contains(candidate.getId())) {
+                        next = candidate;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Task task = next;
+                next = null;
+                return task;
+            }
+        };
+    }
+
+    // Positions de la vue par date dont l'échéance est dans la plage (ou absente). Les bornes
+    // sont des tâches fictives d'identifiant extrême, qu'aucune tâche réelle n'atteint.
+    private static Range dateRange(TaskTree view, TaskQuery.DueRange condition) {
+        int from;
+        int to;
+        if (condition.none) {
+            from = view.rank(new Task(Long.MIN_VALUE, null, null, Task.NO_DATE, Task.statusCode(null)));
+            to = view.size();
+        } else if (condition.from > condition.to) {
+            from = 0;
+            to = 0;
+        } else {
+            from = view.rank(new Task(Long.MIN_VALUE, null, null, condition.from, Task.statusCode(null)));
+            to = view.rank(new Task(Long.MAX_VALUE, null, null, condition.to, Task.statusCode(null)));
+        }
+        return new Range(view, TaskQuery.SortKey.DUE, "vue par date " + condition, from, to);
+    }
+
+    // Positions [from, to) d'une vue triée
+    private static final class Range {
+        final TaskTree view;
+        final TaskQuery.SortKey order;
+        final String description;
+        final int from;
+        final int to;
+
+        Range(TaskTree view, TaskQuery.SortKey order, String description, int from, int to) {
+            this.view = view;
+            this.order = order;
+            this.description = description;
+            this.from = from;
+            this.to = to;
+        }
+
+        int size() {
+            return to - from;
+        }
+
+        Iterator<Task> iterator(boolean descending) {
+            Iterator<Task> ascending = view.iterator(from);
+            return new Iterator<Task>() {
+                private int position = descending ? to : from;
+
+                @Override
+                public boolean hasNext() {
+                    return descending ? position > from : position < to;
+                }
+
+                @Override
+                public Task next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    if (descending) {
+                        return view.get(--position);
+                    }
+                    position++;
+                    return ascending.next();
+                }
+            };
+        }
+    }
+
+    // Candidats d'une recherche de texte : index de trigrammes (par identifiant), plus les colonnes (non triés)
+    private List<Task> searchCandidates(State current, String query) {
+        TaskSearchIndex index = searchIndex;
+        if (index == null) {
+            // Construit sous le verrou de publication : aucune modification ne peut lui échapper
+            synchronized (commitLock) {
+                if (searchIndex == null) {
+                    searchIndex = new TaskSearchIndex(state.indexedTasks());
+                }
+                index = searchIndex;
+            }
+        }
+        List<Task> results;
+        boolean inIdOrder;
+        synchronized (index) {
+            results = index.search(query);
+            inIdOrder = index.isInIdOrder();
+        }
+        if (!inIdOrder && current.columns == null) {
+            // Une tâche remise par undo a été indexée après des tâches plus récentes
+            results.sort(BY_ID);
+        }
+        if (current.columns != null) {
+            // Une tâche des colonnes remplacée après la lecture de l'état est déjà dans l'index
+            TaskIdMap removed = current.removedColumns;
+            TaskIdMap indexed = TaskIdMap.of(results);
+            results.addAll(current.columns.search(query.toLowerCase(Locale.ROOT),
+                    id -> removed.get(id) != null || indexed.get(id) != null));
+        }
+        return results;
+    }
+
+    // Trier par date d'échéance (la vue est maintenue : changer d'ordre ne trie plus rien)
     public void sortByDate() {
-        tasks.sort(Comparator.comparing(Task::getDueDate,
-                Comparator.nullsLast(Comparator.naturalOrder())));
+        setSortOrder(SortOrder.DATE, TaskJournal.SORT_BY_DATE);
     }
 
     // Trier par statut
     public void sortByStatus() {
-        tasks.sort(Comparator.comparing(Task::getStatus));
+        setSortOrder(SortOrder.STATUS, TaskJournal.SORT_BY_STATUS);
+    }
+
+    public SortOrder getSortOrder() {
+        return state.sortOrder;
     }
 
     // Sauvegarder dans un fichier
     public void saveToFile() throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SAVE_FILE))) {
-            for (Task task : tasks) {
-                writer.write(task.toString());
-                writer.newLine();
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            State current;
+            synchronized (commitLock) {
+                if (journal != null) {
+                    // En mode journal, sauvegarder revient à compacter de façon synchrone
+                    compactJournal();
+                    journal.flush();
+                    return;
+                }
+                current = state;
             }
+            BinaryTaskSnapshot.write(Paths.get(SAVE_FILE), current.byId.asList(), 0, current.sortOrder.ordinal(),
+                    current.lastId, null);
+            // Le snapshot complet remplace un éventuel ancien journal
+            Files.deleteIfExists(Paths.get(JOURNAL_FILE));
+        } finally {
+            TaskMetrics.SAVE.record(started, allocated);
         }
     }
 
     // Charger depuis un fichier
     public void loadFromFile() throws IOException {
-        File file = new File(SAVE_FILE);
-        if (!file.exists()) {
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            synchronized (commitLock) {
+                if (journal != null) {
+                    closeJournal();
+                    openJournal(NO_PROGRESS);
+                    return;
+                }
+                if (!new File(SAVE_FILE).exists() && !new File(LEGACY_SAVE_FILE).exists()) {
+                    return;
+                }
+                loadSnapshot(NO_PROGRESS);
+            }
+        } finally {
+            TaskMetrics.LOAD.record(started, allocated);
+        }
+    }
+
+    /**
+     * Sauvegarde sur le thread d'entrées/sorties. Hors mode journal, l'instantané des
+     * tâches est écrit tel qu'il était à l'appel, sans bloquer les modifications ; une
+     * annulation laisse l'ancien fichier intact. En mode journal, le compactage est demandé
+     * et le futur se termine quand il est sur disque.
+     */
+    public CompletableFuture<Void> saveToFileAsync(ProgressListener listener) {
+        State current;
+        TaskJournal currentJournal;
+        synchronized (commitLock) {
+            currentJournal = journal;
+            if (currentJournal != null) {
+                compactJournal();
+            }
+            current = state;
+        }
+        List<Task> tasks = current.byId.asList();
+        return runIo(listener, TaskMetrics.SAVE, (progress, future) -> {
+            if (currentJournal != null) {
+                currentJournal.flush();
+                progress.progress(0, 0, tasks.size(), tasks.size());
+                return;
+            }
+            BinaryTaskSnapshot.write(Paths.get(SAVE_FILE), tasks, 0, current.sortOrder.ordinal(), current.lastId,
+                    progress);
+            Files.deleteIfExists(Paths.get(JOURNAL_FILE));
+        });
+    }
+
+    /**
+     * Chargement sur le thread d'entrées/sorties : les tâches sont lues dans un gestionnaire
+     * séparé puis remplacent l'état courant d'un seul coup. Une erreur ou une annulation
+     * laisse l'état courant intact. Les modifications faites pendant le chargement sont
+     * remplacées par le contenu du fichier.
+     */
+    public CompletableFuture<Void> loadFromFileAsync(ProgressListener listener) {
+        return runIo(listener, TaskMetrics.LOAD, (progress, future) -> {
+            TaskJournal previous;
+            long previousSequence = 0;
+            synchronized (commitLock) {
+                previous = journal;
+                if (previous != null) {
+                    // Le journal est rouvert par le gestionnaire de chargement
+                    flushDirtyLocked();
+                    previousSequence = previous.getSequence();
+                    journal = null;
+                }
+            }
+            if (previous == null) {
+                if (!new File(SAVE_FILE).exists() && !new File(LEGACY_SAVE_FILE).exists()) {
+                    return;
+                }
+                TaskManager staging = new TaskManager(storage);
+                staging.loadSnapshot(progress);
+                swapIn(staging, future);
+                return;
+            }
+
+            previous.close();
+            TaskManager staging = new TaskManager(storage);
+            try {
+                staging.openJournal(progress);
+                swapIn(staging, future);
+            } catch (IOException | RuntimeException e) {
+                reattachJournal(previousSequence);
+                throw e;
+            }
+        });
+    }
+
+    // Variante asynchrone de openJournal, utilisée au démarrage
+    public CompletableFuture<Void> openJournalAsync(ProgressListener listener) {
+        return runIo(listener, TaskMetrics.LOAD, (progress, future) -> {
+            if (journal != null) {
+                return;
+            }
+            TaskManager staging = new TaskManager(storage);
+            staging.openJournal(progress);
+            swapIn(staging, future);
+        });
+    }
+
+    /**
+     * Charge le snapshot et renvoie la séquence de journal qu'il inclut. Le fichier binaire
+     * est lu d'un bloc et les champs des tâches ne sont décodés qu'à la demande ;
+     * à défaut, l'ancien fichier texte est lu entièrement. En Storage.COLUMNS, les tâches
+     * sont recopiées dans des colonnes hors du tas au fil de la lecture.
+     */
+    private long loadSnapshot(ProgressListener progress) throws IOException {
+        List<Task> loaded = new ArrayList<>();
+        TaskColumns.Builder columns = null;
+        long sequence = 0;
+        SortOrder order = SortOrder.INSERTION;
+        boolean storesIds = false;
+        long loadedLastId = 0;
+
+        Path binary = Paths.get(SAVE_FILE);
+        if (Files.exists(binary)) {
+            BinaryTaskSnapshot snapshot = BinaryTaskSnapshot.open(binary);
+            long fileSize = Files.size(binary);
+            int count = snapshot.size();
+            if (storage == Storage.COLUMNS) {
+                columns = new TaskColumns.Builder(count);
+            }
+            for (int i = 0; i < count; i++) {
+                if (columns != null) {
+                    columns.add(snapshot.read(i));
+                } else {
+                    loaded.add(snapshot.read(i));
+                }
+                if ((i & PROGRESS_MASK) == 0) {
+                    progress.progress(fileSize * i / count, fileSize, i, count);
+                }
+            }
+            progress.progress(fileSize, fileSize, count, count);
+            sequence = snapshot.getJournalSequence();
+            storesIds = snapshot.storesIds();
+            loadedLastId = snapshot.getLastId();
+            int code = snapshot.getSortOrder();
+            if (code >= 0 && code < SortOrder.values().length) {
+                order = SortOrder.values()[code];
+            }
+        } else if (new File(LEGACY_SAVE_FILE).exists()) {
+            // Ancien fichier écrit avec l'encodage par défaut (FileWriter), lu en parallèle par morceaux
+            TaskTextLoader.Result text = TaskTextLoader.load(Paths.get(LEGACY_SAVE_FILE), Charset.defaultCharset(),
+                    LEGACY_JOURNAL_HEADER, progress);
+            loaded = text.tasks;
+            sequence = Math.max(0, text.journalSequence);
+        }
+
+        // Sans identifiants enregistrés, ils sont attribués dans l'ordre du fichier (l'ordre d'ajout)
+        long maxId = storesIds ? loadedLastId : 0;
+        for (int i = 0; i < loaded.size(); i++) {
+            Task task = loaded.get(i);
+            if (task.getId() == 0) {
+                task = task.withId(i + 1);
+                loaded.set(i, task);
+            }
+            maxId = Math.max(maxId, task.getId());
+        }
+        State loadedState;
+        if (storage == Storage.COLUMNS) {
+            if (columns == null) {
+                columns = new TaskColumns.Builder(loaded.size());
+                for (Task task : loaded) {
+                    columns.add(task);
+                }
+            }
+            TaskColumns built = columns.build();
+            if (built.size() > 0) {
+                maxId = Math.max(maxId, built.id(built.size() - 1));
+            }
+            // Compteurs par statut construits ici, sur le thread de chargement, pas au premier affichage
+            TaskStatusIndex.Builder statuses = new TaskStatusIndex.Builder(Task.toEpochDay(LocalDate.now()));
+            for (int row = 0; row < built.size(); row++) {
+                statuses.add(built.id(row), built.statusCode(row), built.dueEpochDay(row));
+            }
+            loadedState = new State(built, TaskIdMap.empty(), TaskIdMap.empty(),
+                    TaskTree.fromColumns(built.byId(), BY_ID), null, null, order, maxId, statuses.build());
+        } else {
+            TaskTree byId = TaskTree.fromSorted(loaded, BY_ID);
+            TaskStatusIndex.Builder statuses = new TaskStatusIndex.Builder(Task.toEpochDay(LocalDate.now()));
+            for (Task task : byId) {
+                statuses.add(task.getId(), task.getStatusCode(), task.getDueEpochDay());
+            }
+            loadedState = new State(null, TaskIdMap.of(loaded), TaskIdMap.empty(), byId, null, null, order, maxId,
+                    statuses.build());
+        }
+        synchronized (commitLock) {
+            state = loadedState;
+            searchIndex = null;
+            positionalJournal = !storesIds;
+            forgetHistory();
+            for (ChangeListener listener : listeners) {
+                listener.tasksReplaced();
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Active la persistance par journal : l'état est reconstruit à partir du snapshot
+     * et de la fin du journal, puis chaque modification est ajoutée au journal au lieu
+     * de réécrire tout le fichier.
+     */
+    public void openJournal() throws IOException {
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            openJournal(NO_PROGRESS);
+        } finally {
+            TaskMetrics.LOAD.record(started, allocated);
+        }
+    }
+
+    private void openJournal(ProgressListener progress) throws IOException {
+        synchronized (commitLock) {
+            if (journal != null) {
+                return;
+            }
+            long snapshotSequence = loadSnapshot(progress);
+            journal = TaskJournal.open(Paths.get(SAVE_FILE), Paths.get(JOURNAL_FILE), snapshotSequence,
+                    this::replay);
+            journaledSinceCompaction = 0;
+            // Le rejeu n'est pas une modification à annuler
+            forgetHistory();
+            if (positionalJournal) {
+                // Migrer tout de suite : le journal ne doit pas mêler positions et identifiants
+                positionalJournal = false;
+                compactJournal();
+                journal.flush();
+            }
+        }
+    }
+
+    // Écrire les opérations en attente et arrêter la journalisation
+    public void closeJournal() throws IOException {
+        synchronized (commitLock) {
+            if (journal != null) {
+                flushDirtyLocked();
+                TaskJournal closing = journal;
+                journal = null;
+                closing.close();
+            }
+        }
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean isJournaling() {
+        return journal != null;
+    }
+
+    // Replier le journal dans le snapshot en arrière-plan (l'état immuable sert de copie figée)
+    public void compactJournal() {
+        synchronized (commitLock) {
+            if (journal != null) {
+                State current = state;
+                journal.compact(current.byId.asList(), current.sortOrder.ordinal(), current.lastId);
+                journaledSinceCompaction = 0;
+                // Le snapshot contient aussi les modifications encore en attente
+                dirty = new HashMap<>();
+                sortOrderDirty = false;
+            }
+        }
+    }
+
+    /**
+     * Publie updated si l'état courant est toujours expected (sinon renvoie false et l'appelant
+     * recommence à partir du nouvel état). La publication, la mise à jour de l'index de
+     * recherche et l'ajout au journal se font ensemble : le journal suit l'ordre des états.
+     */
+    private boolean publish(State expected, State updated, Task previous, Task next, String op, String payload) {
+        synchronized (commitLock) {
+            if (state != expected) {
+                return false;
+            }
+            state = updated;
+            TaskSearchIndex index = searchIndex;
+            if (index != null && (previous != null || next != null)) {
+                synchronized (index) {
+                    index(index, previous, next);
+                }
+            }
+            journal(op, payload, previous, next);
+            if (previous != null || next != null) {
+                remember(expected, updated, Collections.singletonList(previous), Collections.singletonList(next));
+                for (ChangeListener listener : listeners) {
+                    listener.taskChanged(previous, next);
+                }
+            }
+            return true;
+        }
+    }
+
+    // Comme publish, pour un lot : un seul enregistrement de journal et un seul appel par observateur
+    private boolean publishBatch(State expected, State updated, List<Task> previous, List<Task> next, String op,
+            String payload) {
+        synchronized (commitLock) {
+            if (state != expected) {
+                return false;
+            }
+            state = updated;
+            TaskSearchIndex index = searchIndex;
+            if (index != null) {
+                synchronized (index) {
+                    for (int i = 0; i < previous.size(); i++) {
+                        Task before = expected.indexed(previous.get(i));
+                        Task after = updated.indexed(next.get(i));
+                        if (before != null || after != null) {
+                            index(index, before, after);
+                        }
+                    }
+                }
+            }
+            journalBatch(op, payload, previous.size());
+            if (!op.equals(TaskJournal.RESTORE)) {
+                remember(expected, updated, previous, next);
+            }
+            for (ChangeListener listener : listeners) {
+                listener.tasksChanged(previous, next);
+            }
+            return true;
+        }
+    }
+
+    // Appelé sous commitLock après chaque modification publiée ; elle rend les rétablissements caducs
+    private void remember(State before, State after, List<Task> previous, List<Task> next) {
+        redoHistory.clear();
+        if (undoLimit == 0) {
             return;
         }
+        long[] ids = new long[previous.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Task task = previous.get(i);
+            ids[i] = (task != null ? task : next.get(i)).getId();
+        }
+        push(undoHistory, new Edit(before, after, ids, previous, next));
+    }
+
+    // Appelé sous commitLock
+    private void push(ArrayDeque<Edit> history, Edit edit) {
+        history.addFirst(edit);
+        trim(history);
+    }
+
+    private void trim(ArrayDeque<Edit> history) {
+        while (history.size() > undoLimit) {
+            history.pollLast();
+        }
+    }
 
-        tasks.clear();
-        try (BufferedReader reader = new BufferedReader(new FileReader(SAVE_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                Task task = Task.fromString(line);
+    // Appelé sous commitLock quand tout l'état est remplacé
+    private void forgetHistory() {
+        undoHistory.clear();
+        redoHistory.clear();
+    }
+
+    /**
+     * Appelé sous commitLock : remet targets.get(i) (null : absente) sous l'identifiant ids[i],
+     * publié et journalisé en un lot. snapshot, s'il est donné, est déjà l'état qui en résulte :
+     * il est republié (avec le dernier identifiant courant, jamais réattribué) au lieu de
+     * refaire les arbres. Renvoie l'état publié.
+     */
+    private State restore(State snapshot, long[] ids, List<Task> targets) {
+        State current = state;
+        List<Task> previous = new ArrayList<>(ids.length);
+        List<Task> next = new ArrayList<>(ids.length);
+        long[] deleted = new long[ids.length];
+        int deletions = 0;
+        // Une tâche remise peut n'avoir jamais été journalisée (écriture différée) : au rejeu,
+        // seul cet enregistrement relève le dernier identifiant au-dessus du sien
+        long lastId = current.lastId;
+        StringBuilder restored = new StringBuilder();
+        for (int i = 0; i < ids.length; i++) {
+            Task task = current.get(ids[i]);
+            Task target = targets.get(i);
+            if (task == target) {
+                continue;
+            }
+            if (snapshot == null && current.columns != null && current.columns.contains(target)) {
+                // Remise dans la table comme tâche du tas : la table ne contient jamais de tâche des colonnes
+                target = target.withId(ids[i]);
+            }
+            previous.add(task);
+            next.add(target);
+            if (target == null) {
+                deleted[deletions++] = ids[i];
+            } else {
+                restored.append('|').append(ids[i]).append('|').append(TaskJournal.encodeTask(target));
+                lastId = Math.max(lastId, ids[i]);
+            }
+        }
+        if (previous.isEmpty()) {
+            return current;
+        }
+        State updated = snapshot != null ? snapshot.withLastId(Math.max(snapshot.lastId, lastId))
+                : current.replaceAll(previous, next, lastId);
+        publishBatch(current, updated, previous, next, TaskJournal.RESTORE,
+                TaskJournal.encodeIds(Arrays.copyOf(deleted, deletions)) + restored);
+        return updated;
+    }
+
+    // Appelé sous le moniteur de l'index
+    private static void index(TaskSearchIndex index, Task previous, Task next) {
+        if (previous == null) {
+            index.add(next);
+        } else if (next == null) {
+            index.remove(previous);
+        } else {
+            index.replace(previous, next);
+        }
+    }
+
+    private void setSortOrder(SortOrder order, String op) {
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        try {
+            while (true) {
+                State current = state;
+                if (publish(current, current.withSortOrder(order), null, null, op, "")) {
+                    return;
+                }
+            }
+        } finally {
+            TaskMetrics.SORT.record(started, allocated);
+        }
+    }
+
+    /**
+     * Instantané courant dont la vue de l'ordre actif existe. Une vue manquante est construite
+     * une seule fois sous le verrou de publication, pour qu'aucune écriture ne la rende
+     * obsolète avant sa publication.
+     */
+    private State snapshot() {
+        return snapshot(null);
+    }
+
+    // Instantané dont la vue de order (de l'ordre actif si null) existe
+    private State snapshot(SortOrder order) {
+        State current = state;
+        if (current.view(order != null ? order : current.sortOrder) != null) {
+            return current;
+        }
+        synchronized (commitLock) {
+            current = state;
+            SortOrder wanted = order != null ? order : current.sortOrder;
+            if (current.view(wanted) == null) {
+                long started = System.nanoTime();
+                long allocated = TaskMetrics.allocatedBytes();
+                current = current.withView(wanted, current.buildView(wanted));
+                TaskMetrics.SORT_VIEW.record(started, allocated);
+                state = current;
+            }
+            return current;
+        }
+    }
+
+    private static long dueKey(Task task) {
+        return task.hasDueDate() ? task.getDueEpochDay() : Long.MAX_VALUE;
+    }
+
+    private static Comparator<Task> comparator(TaskQuery.SortKey key) {
+        switch (key) {
+            case DUE:
+                return BY_DATE;
+            case STATUS:
+                return BY_STATUS;
+            case TITLE:
+                return BY_TITLE;
+            default:
+                return BY_ID;
+        }
+    }
+
+    private static TaskQuery.SortKey sortKey(SortOrder order) {
+        switch (order) {
+            case DATE:
+                return TaskQuery.SortKey.DUE;
+            case STATUS:
+                return TaskQuery.SortKey.STATUS;
+            default:
+                return TaskQuery.SortKey.ID;
+        }
+    }
+
+    private static Comparator<Task> comparator(SortOrder order) {
+        switch (order) {
+            case DATE:
+                return BY_DATE;
+            case STATUS:
+                return BY_STATUS;
+            default:
+                return BY_ID;
+        }
+    }
+
+    // Future dont l'annulation prend le verrou : elle ne peut pas croiser le remplacement de l'état
+    private final class IoFuture extends CompletableFuture<Void> {
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (commitLock) {
+                return super.cancel(mayInterruptIfRunning);
+            }
+        }
+    }
+
+    private interface IoWork {
+        void run(ProgressListener progress, CompletableFuture<Void> future) throws IOException;
+    }
+
+    // Exécute work sur le thread d'entrées/sorties ; l'annulation est vérifiée à chaque avancement
+    private CompletableFuture<Void> runIo(ProgressListener listener, TaskMetrics.Operation metric, IoWork work) {
+        IoFuture future = new IoFuture();
+        ProgressListener progress = (bytes, totalBytes, tasks, totalTasks) -> {
+            if (future.isCancelled()) {
+                throw new CancellationException();
+            }
+            if (listener != null) {
+                listener.progress(bytes, totalBytes, tasks, totalTasks);
+            }
+        };
+        IO_EXECUTOR.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            long started = System.nanoTime();
+            long allocated = TaskMetrics.allocatedBytes();
+            try {
+                work.run(progress, future);
+                future.complete(null);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                metric.record(started, allocated);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Remplace tout l'état par celui de staging et termine le futur, sous le verrou. Si
+     * l'opération a été annulée entre-temps, staging est abandonné (et son journal fermé).
+     */
+    private void swapIn(TaskManager staging, CompletableFuture<Void> future) throws IOException {
+        synchronized (commitLock) {
+            if (!future.isCancelled()) {
+                state = staging.state;
+                searchIndex = staging.searchIndex;
+                journal = staging.journal;
+                journaledSinceCompaction = staging.journaledSinceCompaction;
+                positionalJournal = false;
+                dirty = new HashMap<>();
+                sortOrderDirty = false;
+                forgetHistory();
+                for (ChangeListener listener : listeners) {
+                    listener.tasksReplaced();
+                }
+                future.complete(null);
+                return;
+            }
+        }
+        staging.closeJournal();
+        throw new CancellationException();
+    }
+
+    /**
+     * Rouvre le journal fermé pour un rechargement qui a échoué. L'état en mémoire n'a pas
+     * été remplacé ; il est recompacté car des modifications ont pu être faites sans journal.
+     */
+    private void reattachJournal(long sequence) throws IOException {
+        synchronized (commitLock) {
+            if (journal == null) {
+                journal = TaskJournal.open(Paths.get(SAVE_FILE), Paths.get(JOURNAL_FILE), sequence, (op, payload) -> {
+                });
+                compactJournal();
+            }
+        }
+    }
+
+    // Appelé sous commitLock ; previous et next sont null pour un changement d'ordre
+    private void journal(String op, String payload, Task previous, Task next) {
+        if (journal == null) {
+            return;
+        }
+        if (autosaveMillis == 0) {
+            journal.append(op, payload);
+            journaled(1);
+            return;
+        }
+        if (previous == null && next == null) {
+            sortOrderDirty = true;
+        } else {
+            dirty.putIfAbsent((next != null ? next : previous).getId(), previous != null);
+        }
+        if (dirty.size() >= autosaveThreshold && !flushRequested) {
+            flushRequested = true;
+            AUTOSAVE.execute(this::flushDirty);
+        }
+    }
+
+    /**
+     * Appelé sous commitLock : un lot est écrit tout de suite en un enregistrement, même en
+     * écriture différée. Les modifications en attente sont écrites avant lui (avec leur état
+     * actuel, qui inclut déjà le lot : le rejeu du lot par-dessus ne change alors plus rien).
+     */
+    private void journalBatch(String op, String payload, int count) {
+        if (journal == null) {
+            return;
+        }
+        if (autosaveMillis > 0) {
+            flushDirtyLocked();
+        }
+        journal.append(op, payload);
+        // Le rejeu coûte autant que count opérations : le compactage en tient compte
+        journaled(count);
+    }
+
+    // Appelé sous commitLock, après l'ajout de count enregistrements
+    private void journaled(int count) {
+        journaledSinceCompaction += count;
+        if (journaledSinceCompaction >= COMPACTION_THRESHOLD) {
+            compactJournal();
+        }
+    }
+
+    /**
+     * Persistance différée en mode journal : les modifications sont écrites toutes les
+     * intervalMillis ms, ou dès que threshold tâches sont en attente. 0 ms revient à
+     * l'écriture immédiate de chaque opération (comportement par défaut).
+     */
+    public void setAutosave(long intervalMillis, int threshold) {
+        synchronized (commitLock) {
+            if (autosaveTask != null) {
+                autosaveTask.cancel(false);
+                autosaveTask = null;
+            }
+            flushDirtyLocked();
+            autosaveMillis = Math.max(0, intervalMillis);
+            autosaveThreshold = Math.max(1, threshold);
+            if (autosaveMillis > 0) {
+                autosaveTask = AUTOSAVE.scheduleWithFixedDelay(this::flushDirty, autosaveMillis,
+                        autosaveMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Nombre de tâches modifiées pas encore transmises au journal
+    public int getDirtyCount() {
+        synchronized (commitLock) {
+            return dirty.size();
+        }
+    }
+
+    // Transmettre tout de suite les modifications en attente au journal (écrites par son thread)
+    public void flushDirty() {
+        synchronized (commitLock) {
+            flushRequested = false;
+            flushDirtyLocked();
+        }
+    }
+
+    /**
+     * Appelé sous commitLock : un enregistrement par tâche modifiée, avec son état actuel,
+     * ajoutés d'un bloc pour que le thread du journal les écrive en un seul lot.
+     */
+    private void flushDirtyLocked() {
+        if (journal == null || (dirty.isEmpty() && !sortOrderDirty)) {
+            return;
+        }
+        long started = System.nanoTime();
+        long allocated = TaskMetrics.allocatedBytes();
+        State current = state;
+        int written = 0;
+        for (Map.Entry<Long, Boolean> entry : dirty.entrySet()) {
+            long id = entry.getKey();
+            Task task = current.get(id);
+            if (task != null) {
+                String op = entry.getValue() ? TaskJournal.UPDATE : TaskJournal.ADD;
+                journal.append(op, id + "|" + TaskJournal.encodeTask(task));
+                written++;
+            } else if (entry.getValue()) {
+                journal.append(TaskJournal.DELETE, String.valueOf(id));
+                written++;
+            }
+        }
+        if (sortOrderDirty && current.sortOrder != SortOrder.INSERTION) {
+            journal.append(current.sortOrder == SortOrder.DATE ? TaskJournal.SORT_BY_DATE
+                    : TaskJournal.SORT_BY_STATUS, "");
+            written++;
+        }
+        dirty = new HashMap<>();
+        sortOrderDirty = false;
+        // Le compactage éventuel vient après tous les ajouts : il couvre alors tout le lot
+        journaled(written);
+        TaskMetrics.AUTOSAVE.record(started, allocated);
+    }
+
+    // Rejouer une opération du journal (la journalisation n'est pas encore active)
+    private void replay(String op, String payload) {
+        switch (op) {
+            case TaskJournal.ADD: {
+                if (positionalJournal) {
+                    Task task = TaskJournal.decodeTask(payload);
+                    if (task != null) {
+                        addTask(task);
+                    }
+                    break;
+                }
+                int separator = payload.indexOf('|');
+                Task task = TaskJournal.decodeTask(payload.substring(separator + 1));
                 if (task != null) {
-                    tasks.add(task);
+                    replayAdd(Long.parseLong(payload.substring(0, separator)), task);
+                }
+                break;
+            }
+            case TaskJournal.UPDATE: {
+                int separator = payload.indexOf('|');
+                Task task = TaskJournal.decodeTask(payload.substring(separator + 1));
+                if (task != null) {
+                    updateTaskById(journalId(payload.substring(0, separator)), task);
+                }
+                break;
+            }
+            case TaskJournal.DELETE:
+                deleteTaskById(journalId(payload));
+                break;
+            case TaskJournal.COMPLETE:
+                markAsCompletedById(journalId(payload));
+                break;
+            case TaskJournal.BULK_ADD: {
+                int separator = payload.indexOf('|');
+                List<Task> tasks = TaskJournal.decodeTasks(payload.substring(separator + 1));
+                if (tasks != null) {
+                    replayAddAll(Long.parseLong(payload.substring(0, separator)), tasks);
+                }
+                break;
+            }
+            case TaskJournal.BULK_DELETE:
+                deleteTasksById(TaskJournal.decodeIds(payload));
+                break;
+            case TaskJournal.BULK_COMPLETE:
+                completeTasksById(TaskJournal.decodeIds(payload));
+                break;
+            case TaskJournal.BULK_STATUS: {
+                int separator = payload.lastIndexOf('|');
+                setStatusById(TaskJournal.decodeIds(payload.substring(separator + 1)),
+                        TaskJournal.decodeField(payload.substring(0, separator)));
+                break;
+            }
+            case TaskJournal.RESTORE: {
+                int separator = payload.indexOf('|');
+                long[] deleted = TaskJournal.decodeIds(separator < 0 ? payload : payload.substring(0, separator));
+                List<Task> restored = separator < 0 ? Collections.emptyList()
+                        : TaskJournal.decodeTasksWithIds(payload.substring(separator + 1));
+                if (restored != null) {
+                    replayRestore(deleted, restored);
                 }
+                break;
+            }
+            case TaskJournal.SORT_BY_DATE:
+                sortByDate();
+                break;
+            case TaskJournal.SORT_BY_STATUS:
+                sortByStatus();
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Ajout rejoué avec l'identifiant enregistré (le rejeu est mono-thread, sous commitLock)
+    private void replayAdd(long id, Task task) {
+        State current = state;
+        Task added = task.withId(id);
+        publish(current, current.replace(null, added, Math.max(current.lastId, id)), null, added, TaskJournal.ADD, "");
+    }
+
+    // Lot d'ajouts rejoué avec ses identifiants enregistrés (consécutifs à partir de first)
+    private void replayAddAll(long first, List<Task> tasks) {
+        State current = state;
+        List<Task> added = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            added.add(tasks.get(i).withId(first + i));
+        }
+        List<Task> none = Collections.nCopies(tasks.size(), null);
+        publishBatch(current, current.replaceAll(none, added, Math.max(current.lastId, first + tasks.size() - 1)),
+                none, added, TaskJournal.BULK_ADD, "");
+    }
+
+    // Annulation rejouée : suppressions et tâches remises, fusionnées par identifiant croissant
+    private void replayRestore(long[] deleted, List<Task> restored) {
+        long[] ids = new long[deleted.length + restored.size()];
+        List<Task> targets = new ArrayList<>(ids.length);
+        int d = 0;
+        int r = 0;
+        while (d < deleted.length || r < restored.size()) {
+            if (r == restored.size() || d < deleted.length && deleted[d] < restored.get(r).getId()) {
+                ids[targets.size()] = deleted[d++];
+                targets.add(null);
+            } else {
+                Task task = restored.get(r++);
+                ids[targets.size()] = task.getId();
+                targets.add(task);
             }
         }
+        restore(null, ids, targets);
+    }
+
+    // Identifiant désigné par un enregistrement (position dans l'ordre actif pour un ancien journal)
+    private long journalId(String key) {
+        if (!positionalJournal) {
+            return Long.parseLong(key);
+        }
+        Task task = getTask(Integer.parseInt(key));
+        return task != null ? task.getId() : -1;
     }
 
     // Obtenir le nombre de tâches
     public int getTaskCount() {
-        return tasks.size();
+        return state.byId.size();
+    }
+
+    // Nombre de tâches portant exactement ce statut, en O(1)
+    public int countByStatus(String status) {
+        Short code = Task.knownStatusCode(status);
+        return code != null ? state.statuses.count(code) : 0;
+    }
+
+    // Nombre de tâches de chaque statut présent, dans l'ordre de création des statuts (null en dernier)
+    public Map<String, Integer> countsByStatus() {
+        TaskStatusIndex statuses = state.statuses;
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        int statusCount = Task.statusCount();
+        for (int code = 0; code < statusCount; code++) {
+            int count = statuses.count((short) code);
+            if (count > 0) {
+                counts.put(Task.statusLabel((short) code), count);
+            }
+        }
+        int withoutStatus = statuses.count(Task.statusCode(null));
+        if (withoutStatus > 0) {
+            counts.put(null, withoutStatus);
+        }
+        return counts;
+    }
+
+    /**
+     * Nombre de tâches non terminées dont l'échéance précède today. Le compteur suit chaque
+     * modification : O(1) tant que le jour ne change pas, un parcours quand il change.
+     */
+    public int countOverdue(LocalDate today) {
+        int day = Task.toEpochDay(today);
+        State current = state;
+        if (current.statuses.getOverdueDay() == day) {
+            return current.statuses.getOverdueCount();
+        }
+        synchronized (commitLock) {
+            current = state;
+            if (current.statuses.getOverdueDay() != day) {
+                int count = 0;
+                for (Task task : current.byId) {
+                    if (TaskStatusIndex.isOverdue(task, day)) {
+                        count++;
+                    }
+                }
+                current = current.withStatuses(current.statuses.withOverdue(day, count));
+                state = current;
+            }
+            return current.statuses.getOverdueCount();
+        }
     }
 }
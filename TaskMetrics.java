@@ -0,0 +1,288 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Mesures des opérations du gestionnaire et de l'interface : nombre, durée (histogramme),
+ * maximum et octets alloués par le thread qui exécute l'opération.
+ *
+ * L'enregistrement ne prend aucun verrou : compteurs LongAdder et histogramme à seaux
+ * log-linéaires (16 seaux par puissance de deux, soit environ 6 % de précision, à la manière
+ * de HdrHistogram) dans un AtomicLongArray. Les mesures sont exposées en JMX
+ * (TaskManager:type=Operation,name=...) et peuvent être écrites périodiquement en CSV.
+ */
+public final class TaskMetrics {
+    // Propriétés lues par startFromSystemProperties
+    public static final String CSV_PROPERTY = "tasks.metrics.csv";       // fichier, ou "-" pour la sortie standard
+    public static final String PERIOD_PROPERTY = "tasks.metrics.period"; // secondes, 60 par défaut
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    public static final Operation ADD = new Operation("add");
+    public static final Operation UPDATE = new Operation("update");
+    public static final Operation DELETE = new Operation("delete");
+    public static final Operation COMPLETE = new Operation("complete");
+    public static final Operation SEARCH = new Operation("search");
+    public static final Operation SORT = new Operation("sort");
+    // Construction d'une vue triée, faite au premier affichage qui suit un changement d'ordre
+    public static final Operation SORT_VIEW = new Operation("sortView");
+    public static final Operation LOAD = new Operation("load");
+    public static final Operation SAVE = new Operation("save");
+    public static final Operation REFRESH_TABLE = new Operation("refreshTable");
+    // Écriture différée des tâches modifiées (TaskManager.setAutosave)
+    public static final Operation AUTOSAVE = new Operation("autosave");
+    // Plan d'une requête et, si ses résultats doivent être triés, leur tri (TaskManager.query)
+    public static final Operation QUERY = new Operation("query");
+    // Lot appliqué d'un bloc (TaskManager.addTasks, deleteTasksById...), compté une fois par lot
+    public static final Operation BATCH = new Operation("batch");
+    // Annulation ou rétablissement d'une modification (TaskManager.undo, redo)
+    public static final Operation UNDO = new Operation("undo");
+
+    private static final Operation[] OPERATIONS = { ADD, UPDATE, DELETE, COMPLETE, SEARCH, SORT, SORT_VIEW, LOAD,
+            SAVE, REFRESH_TABLE, AUTOSAVE, QUERY, BATCH, UNDO };
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    private static ScheduledExecutorService dumper;
+
+    // Vue JMX d'une opération ; les durées sont en microsecondes
+    public interface OperationMXBean {
+        long getCount();
+
+        double getMeanMicros();
+
+        double getP50Micros();
+
+        double getP90Micros();
+
+        double getP99Micros();
+
+        double getMaxMicros();
+
+        long getAllocatedBytesPerOperation();
+
+        void reset();
+    }
+
+    public static final class Operation implements OperationMXBean {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Enregistre une opération commencée à startNanos (System.nanoTime()) alors que le
+         * thread avait alloué startAllocated octets (allocatedBytes()).
+         */
+        public void record(long startNanos, long startAllocated) {
+            long nanos = Math.max(0, System.nanoTime() - startNanos);
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            buckets.incrementAndGet(bucketOf(nanos));
+            if (THREADS != null) {
+                allocatedBytes.add(Math.max(0, allocatedBytes() - startAllocated));
+            }
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e3 / n;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return percentile(0.50) / 1e3;
+        }
+
+        @Override
+        public double getP90Micros() {
+            return percentile(0.90) / 1e3;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return percentile(0.99) / 1e3;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return maxNanos.get() / 1e3;
+        }
+
+        @Override
+        public long getAllocatedBytesPerOperation() {
+            long n = count.sum();
+            return n == 0 ? 0 : allocatedBytes.sum() / n;
+        }
+
+        // Remise à zéro (non atomique : un enregistrement concurrent peut être en partie perdu)
+        @Override
+        public void reset() {
+            count.reset();
+            totalNanos.reset();
+            allocatedBytes.reset();
+            maxNanos.reset();
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+        }
+
+        // Borne haute du seau contenant le quantile demandé, en nanosecondes
+        private long percentile(double quantile) {
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+    }
+
+    private TaskMetrics() {
+    }
+
+    // Octets alloués jusqu'ici par le thread courant (0 si la JVM ne le mesure pas)
+    public static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Enregistre les MBeans puis, si tasks.metrics.csv est défini, lance l'écriture
+     * périodique en CSV. Peut être appelé plusieurs fois.
+     */
+    public static synchronized void startFromSystemProperties() {
+        registerMBeans();
+        String csv = System.getProperty(CSV_PROPERTY);
+        if (csv != null && dumper == null) {
+            long period = Long.getLong(PERIOD_PROPERTY, 60);
+            try {
+                startCsvDump(csv, Math.max(1, period));
+            } catch (IOException e) {
+                System.err.println("Mesures CSV désactivées : " + e.getMessage());
+            }
+        }
+    }
+
+    public static void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Operation operation : OPERATIONS) {
+            try {
+                server.registerMBean(operation, new ObjectName("TaskManager:type=Operation,name=" + operation.name));
+            } catch (InstanceAlreadyExistsException e) {
+                // déjà enregistrée
+            } catch (JMException e) {
+                System.err.println("MBean " + operation.name + " non enregistré : " + e.getMessage());
+            }
+        }
+    }
+
+    // Ajoute toutes les period secondes une ligne par opération déjà exécutée
+    private static void startCsvDump(String target, long period) throws IOException {
+        boolean newFile = !"-".equals(target) && !new java.io.File(target).exists();
+        PrintWriter out = "-".equals(target)
+                ? new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), true)
+                : new PrintWriter(new OutputStreamWriter(new FileOutputStream(target, true), StandardCharsets.UTF_8),
+                        true);
+        if (newFile || "-".equals(target)) {
+            out.println("horodatage,operation,nombre,moyenne_us,p50_us,p90_us,p99_us,max_us,octets_par_op");
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "task-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> writeCsv(out), period, period, TimeUnit.SECONDS);
+    }
+
+    private static void writeCsv(PrintWriter out) {
+        String now = LocalDateTime.now().withNano(0).toString();
+        for (Operation operation : OPERATIONS) {
+            if (operation.getCount() == 0) {
+                continue;
+            }
+            out.println(String.format(java.util.Locale.ROOT, "%s,%s,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%d", now,
+                    operation.name, operation.getCount(), operation.getMeanMicros(), operation.getP50Micros(),
+                    operation.getP90Micros(), operation.getP99Micros(), operation.getMaxMicros(),
+                    operation.getAllocatedBytesPerOperation()));
+        }
+    }
+
+    // Valeurs < 16 : un seau chacune ; au-delà, 16 seaux par puissance de deux
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Plus grande valeur du seau
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long next = (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS);
+        return next > 0 ? next - 1 : Long.MAX_VALUE;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) bean;
+            if (!allocation.isThreadAllocatedMemoryEnabled()) {
+                allocation.setThreadAllocatedMemoryEnabled(true);
+            }
+            return allocation;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,641 @@
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Requête sur les tâches, analysée depuis un texte comme :
+ *
+ *   status:Terminé due<2026-12-01 title~"rapport annuel" sort:-due limit:50
+ *
+ * Termes (les guillemets permettent les espaces, sans eux un mot est pris entier) :
+ *   title~x, description~x, status~x  le champ contient x (title:x et description:x aussi)
+ *   title=x, description=x            le champ vaut x
+ *   status:x, status=x                le statut vaut x
+ *   due<d, due<=d, due>d, due>=d      échéance (AAAA-MM-JJ, JJ/MM/AAAA ou today)
+ *   due:d, due=d, due:none            échéance ce jour-là, ou sans échéance
+ *   id<n, id>=n, id=n...              identifiant
+ *   mot                               titre, statut ou description contient le mot
+ * Les termes juxtaposés sont liés par AND ; OR, NOT (ou -terme) et les parenthèses
+ * composent le reste. Les comparaisons de texte ignorent la casse. sort:champ (due, status,
+ * title, id ; -champ pour l'ordre inverse) et limit:n s'appliquent à toute la requête ;
+ * sans sort:, les résultats suivent l'ordre d'affichage actif.
+ *
+ * La requête ne fait qu'analyser et tester ; TaskManager.query choisit le chemin d'accès.
+ */
+public final class TaskQuery {
+    public enum Field {
+        TITLE, DESCRIPTION, STATUS, ANY
+    }
+
+    public enum SortKey {
+        ID, DUE, STATUS, TITLE
+    }
+
+    private static final Pattern TERM = Pattern.compile(
+            "(?i)(title|titre|description|desc|status|statut|due|echeance|id)(<=|>=|:|~|=|<|>)(.*)");
+    private static final Pattern OPTION = Pattern.compile("(?i)(sort|tri|limit):(-?)(\\w+)");
+    private static final DateTimeFormatter FRENCH_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final Node where;
+    private final SortKey sortKey; // null : ordre actif
+    private final boolean descending;
+    private final int limit; // -1 : pas de limite
+
+    private TaskQuery(Node where, SortKey sortKey, boolean descending, int limit) {
+        this.where = where;
+        this.sortKey = sortKey;
+        this.descending = descending;
+        this.limit = limit;
+    }
+
+    /** Analyse une requête ; IllegalArgumentException avec un message en clair si elle est invalide. */
+    public static TaskQuery parse(String text) {
+        return new Parser(text).parse();
+    }
+
+    /**
+     * Vrai si le texte utilise la syntaxe des requêtes (champ, opérateur, OR, NOT,
+     * parenthèses, sort:, limit:) ; un texte simple reste une recherche de sous-chaîne.
+     */
+    public static boolean isStructured(String text) {
+        for (String token : tokenize(text)) {
+            if (TERM.matcher(token).matches() || OPTION.matcher(token).matches() || token.equals("(")
+                    || token.equals("OR") || token.equals("NOT") || (token.startsWith("-") && token.length() > 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean test(Task task) {
+        return where.test(task);
+    }
+
+    Node where() {
+        return where;
+    }
+
+    public SortKey getSortKey() {
+        return sortKey;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    // Conditions liées par AND au plus haut niveau (une seule si la racine n'est pas un AND)
+    List<Node> conjuncts() {
+        List<Node> result = new ArrayList<>();
+        if (where instanceof And) {
+            result.addAll(((And) where).children);
+        } else {
+            result.add(where);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return where + (sortKey != null ? " sort:" + (descending ? "-" : "") + sortKey.name().toLowerCase(Locale.ROOT)
+                : "") + (limit >= 0 ? " limit:" + limit : "");
+    }
+
+    /**
+     * Résultats d'une requête, produits à la demande : page après page, la première
+     * arrive sans attendre les suivantes quand le chemin d'accès suit l'ordre demandé.
+     */
+    public static final class Cursor implements Iterator<Task> {
+        private final Iterator<Task> candidates;
+        private final TaskQuery query;
+        private final boolean filter;
+        private final String plan;
+        private Task next;
+        private int returned;
+
+        /**
+         * candidates : tâches à tester (filter vrai) ou déjà retenues ; la limite de la
+         * requête est appliquée ici.
+         */
+        Cursor(Iterator<Task> candidates, TaskQuery query, boolean filter, String plan) {
+            this.candidates = candidates;
+            this.query = query;
+            this.filter = filter;
+            this.plan = plan;
+        }
+
+        // Chemin d'accès choisi, pour le diagnostic
+        public String getPlan() {
+            return plan;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (query.limit >= 0 && returned >= query.limit) {
+                return false;
+            }
+            while (next == null && candidates.hasNext()) {
+                Task candidate = candidates.next();
+                if (!filter || query.test(candidate)) {
+                    next = candidate;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Task next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Task task = next;
+            next = null;
+            returned++;
+            return task;
+        }
+
+        // Jusqu'à size résultats suivants (liste vide à la fin)
+        public List<Task> nextPage(int size) {
+            List<Task> page = new ArrayList<>(Math.min(size, 1024));
+            while (page.size() < size && hasNext()) {
+                page.add(next());
+            }
+            return page;
+        }
+
+        // Tous les résultats restants
+        public List<Task> toList() {
+            return nextPage(Integer.MAX_VALUE);
+        }
+    }
+
+    // Condition testée sur une tâche
+    abstract static class Node {
+        abstract boolean test(Task task);
+    }
+
+    static final class All extends Node {
+        @Override
+        boolean test(Task task) {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "*";
+        }
+    }
+
+    static final class And extends Node {
+        final List<Node> children;
+
+        And(List<Node> children) {
+            this.children = children;
+        }
+
+        @Override
+        boolean test(Task task) {
+            for (Node child : children) {
+                if (!child.test(task)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + join(children, " AND ") + ")";
+        }
+    }
+
+    static final class Or extends Node {
+        final List<Node> children;
+
+        Or(List<Node> children) {
+            this.children = children;
+        }
+
+        @Override
+        boolean test(Task task) {
+            for (Node child : children) {
+                if (child.test(task)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + join(children, " OR ") + ")";
+        }
+    }
+
+    static final class Not extends Node {
+        final Node child;
+
+        Not(Node child) {
+            this.child = child;
+        }
+
+        @Override
+        boolean test(Task task) {
+            return !child.test(task);
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + child;
+        }
+    }
+
+    // Texte d'un champ (ou des trois pour ANY) qui contient ou vaut value, sans tenir compte de la casse
+    static final class Text extends Node {
+        final Field field;
+        final boolean exact;
+        final String lowerValue;
+
+        Text(Field field, boolean exact, String value) {
+            this.field = field;
+            this.exact = exact;
+            this.lowerValue = value.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        boolean test(Task task) {
+            switch (field) {
+                case TITLE:
+                    return matches(task.getTitle());
+                case DESCRIPTION:
+                    return matches(task.getDescription());
+                case STATUS:
+                    return matches(task.getStatus());
+                default:
+                    return matches(task.getTitle()) || matches(task.getStatus()) || matches(task.getDescription());
+            }
+        }
+
+        private boolean matches(String value) {
+            if (value == null) {
+                return lowerValue.isEmpty() && exact;
+            }
+            String lower = value.toLowerCase(Locale.ROOT);
+            return exact ? lower.equals(lowerValue) : lower.contains(lowerValue);
+        }
+
+        @Override
+        public String toString() {
+            return field.name().toLowerCase(Locale.ROOT) + (exact ? "=" : "~") + "\"" + lowerValue + "\"";
+        }
+    }
+
+    // Échéance entre from et to (jours epoch inclus), ou absente si none
+    static final class DueRange extends Node {
+        final int from;
+        final int to;
+        final boolean none;
+
+        DueRange(int from, int to, boolean none) {
+            this.from = from;
+            this.to = to;
+            this.none = none;
+        }
+
+        @Override
+        boolean test(Task task) {
+            if (!task.hasDueDate()) {
+                return none;
+            }
+            int day = task.getDueEpochDay();
+            return !none && day >= from && day <= to;
+        }
+
+        @Override
+        public String toString() {
+            if (none) {
+                return "due:none";
+            }
+            return "due[" + (from == Task.NO_DATE + 1 ? "…" : LocalDate.ofEpochDay(from)) + ","
+                    + (to == Integer.MAX_VALUE ? "…" : LocalDate.ofEpochDay(to)) + "]";
+        }
+    }
+
+    static final class IdRange extends Node {
+        final long from;
+        final long to;
+
+        IdRange(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        boolean test(Task task) {
+            return task.getId() >= from && task.getId() <= to;
+        }
+
+        @Override
+        public String toString() {
+            return "id[" + from + "," + to + "]";
+        }
+    }
+
+    private static String join(List<Node> nodes, String separator) {
+        StringBuilder sb = new StringBuilder();
+        for (Node node : nodes) {
+            if (sb.length() > 0) {
+                sb.append(separator);
+            }
+            sb.append(node);
+        }
+        return sb.toString();
+    }
+
+    // Découpe en mots (un passage entre guillemets reste dans son mot) et parenthèses
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                token.append(c);
+                if (c == '\\' && i + 1 < text.length()) {
+                    token.append(text.charAt(++i));
+                } else if (c == '"') {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+                token.append(c);
+            } else if (Character.isWhitespace(c) || c == '(' || c == ')') {
+                if (token.length() > 0) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                }
+                if (c == '(' || c == ')') {
+                    tokens.add(String.valueOf(c));
+                }
+            } else {
+                token.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Guillemet non fermé");
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    // Analyse descendante : or := and (OR and)* ; and := not (AND? not)* ; not := NOT not | -not | primaire
+    private static final class Parser {
+        private final List<String> tokens;
+        private int position;
+        private SortKey sortKey;
+        private boolean descending;
+        private int limit = -1;
+
+        Parser(String text) {
+            this.tokens = tokenize(text);
+        }
+
+        TaskQuery parse() {
+            List<String> conditions = new ArrayList<>();
+            for (String token : tokens) {
+                Matcher option = OPTION.matcher(token);
+                if (option.matches()) {
+                    option(option.group(1).toLowerCase(Locale.ROOT), !option.group(2).isEmpty(), option.group(3));
+                } else {
+                    conditions.add(token);
+                }
+            }
+            tokens.clear();
+            tokens.addAll(conditions);
+            Node where = tokens.isEmpty() ? new All() : or();
+            if (position < tokens.size()) {
+                throw new IllegalArgumentException("Terme inattendu : " + tokens.get(position));
+            }
+            return new TaskQuery(where, sortKey, descending, limit);
+        }
+
+        private void option(String name, boolean minus, String value) {
+            if (name.equals("limit")) {
+                if (minus) {
+                    throw new IllegalArgumentException("Limite négative : -" + value);
+                }
+                try {
+                    limit = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Limite invalide : " + value);
+                }
+                return;
+            }
+            descending = minus;
+            switch (value.toLowerCase(Locale.ROOT)) {
+                case "due":
+                case "echeance":
+                case "date":
+                    sortKey = SortKey.DUE;
+                    break;
+                case "status":
+                case "statut":
+                    sortKey = SortKey.STATUS;
+                    break;
+                case "title":
+                case "titre":
+                    sortKey = SortKey.TITLE;
+                    break;
+                case "id":
+                    sortKey = SortKey.ID;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Tri inconnu : " + value);
+            }
+        }
+
+        private Node or() {
+            List<Node> children = new ArrayList<>();
+            children.add(and());
+            while (accept("OR")) {
+                children.add(and());
+            }
+            return children.size() == 1 ? children.get(0) : new Or(children);
+        }
+
+        private Node and() {
+            List<Node> children = new ArrayList<>();
+            children.add(not());
+            while (position < tokens.size() && !tokens.get(position).equals(")")
+                    && !tokens.get(position).equals("OR")) {
+                accept("AND");
+                children.add(not());
+            }
+            return children.size() == 1 ? children.get(0) : new And(children);
+        }
+
+        private Node not() {
+            if (accept("NOT")) {
+                return new Not(not());
+            }
+            String token = peek();
+            if (token.length() > 1 && token.startsWith("-")) {
+                tokens.set(position, token.substring(1));
+                return new Not(not());
+            }
+            return primary();
+        }
+
+        private Node primary() {
+            if (accept("(")) {
+                Node inner = or();
+                if (!accept(")")) {
+                    throw new IllegalArgumentException("Parenthèse non fermée");
+                }
+                return inner;
+            }
+            String token = peek();
+            if (token.equals(")") || token.equals("AND") || token.equals("OR")) {
+                throw new IllegalArgumentException("Terme attendu avant " + token);
+            }
+            position++;
+            Matcher term = TERM.matcher(token);
+            if (!term.matches()) {
+                return new Text(Field.ANY, false, unquote(token));
+            }
+            return term(term.group(1).toLowerCase(Locale.ROOT), term.group(2), unquote(term.group(3)));
+        }
+
+        private Node term(String field, String operator, String value) {
+            switch (field) {
+                case "title":
+                case "titre":
+                    return new Text(Field.TITLE, operator.equals("="), textValue(field, operator, value));
+                case "description":
+                case "desc":
+                    return new Text(Field.DESCRIPTION, operator.equals("="), textValue(field, operator, value));
+                case "status":
+                case "statut":
+                    // status:x est une égalité, comme le filtre par statut de l'interface
+                    return new Text(Field.STATUS, !operator.equals("~"), textValue(field, operator, value));
+                case "id":
+                    return idRange(operator, value);
+                default:
+                    return dueRange(operator, value);
+            }
+        }
+
+        private String textValue(String field, String operator, String value) {
+            if (operator.equals("<") || operator.equals(">") || operator.equals("<=") || operator.equals(">=")) {
+                throw new IllegalArgumentException("Opérateur " + operator + " impossible sur " + field);
+            }
+            return value;
+        }
+
+        private Node dueRange(String operator, String value) {
+            if (value.equalsIgnoreCase("none") || value.equalsIgnoreCase("aucune")) {
+                if (!operator.equals(":") && !operator.equals("=")) {
+                    throw new IllegalArgumentException("Opérateur " + operator + " impossible avec none");
+                }
+                return new DueRange(0, -1, true);
+            }
+            int day = parseDay(value);
+            int min = Task.NO_DATE + 1;
+            switch (operator) {
+                case "<":
+                    return new DueRange(min, day - 1, false);
+                case "<=":
+                    return new DueRange(min, day, false);
+                case ">":
+                    return new DueRange(day + 1, Integer.MAX_VALUE, false);
+                case ">=":
+                    return new DueRange(day, Integer.MAX_VALUE, false);
+                case "~":
+                    throw new IllegalArgumentException("Opérateur ~ impossible sur une date");
+                default:
+                    return new DueRange(day, day, false);
+            }
+        }
+
+        private Node idRange(String operator, String value) {
+            long id;
+            try {
+                id = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Identifiant invalide : " + value);
+            }
+            switch (operator) {
+                case "<":
+                    return new IdRange(Long.MIN_VALUE, id - 1);
+                case "<=":
+                    return new IdRange(Long.MIN_VALUE, id);
+                case ">":
+                    return new IdRange(id + 1, Long.MAX_VALUE);
+                case ">=":
+                    return new IdRange(id, Long.MAX_VALUE);
+                case "~":
+                    throw new IllegalArgumentException("Opérateur ~ impossible sur un identifiant");
+                default:
+                    return new IdRange(id, id);
+            }
+        }
+
+        private static int parseDay(String value) {
+            LocalDate date;
+            try {
+                if (value.equalsIgnoreCase("today") || value.equalsIgnoreCase("aujourdhui")) {
+                    date = LocalDate.now();
+                } else if (value.contains("/")) {
+                    date = LocalDate.parse(value, FRENCH_DATE);
+                } else {
+                    date = LocalDate.parse(value);
+                }
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Date invalide : " + value + " (AAAA-MM-JJ ou JJ/MM/AAAA)");
+            }
+            return Task.toEpochDay(date);
+        }
+
+        private static String unquote(String value) {
+            if (value.length() < 2 || !value.startsWith("\"") || !value.endsWith("\"")) {
+                return value;
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int i = 1; i < value.length() - 1; i++) {
+                char c = value.charAt(i);
+                if (c == '\\' && i + 1 < value.length() - 1) {
+                    c = value.charAt(++i);
+                }
+                sb.append(c);
+            }
+            return sb.toString();
+        }
+
+        private String peek() {
+            if (position >= tokens.size()) {
+                throw new IllegalArgumentException("Requête incomplète");
+            }
+            return tokens.get(position);
+        }
+
+        private boolean accept(String token) {
+            if (position < tokens.size() && tokens.get(position).equals(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rappels d'échéance : signale une tâche non terminée le jour de son échéance (DUE) puis,
+ * si elle ne l'est toujours pas, le lendemain (OVERDUE). Au démarrage et après chaque
+ * chargement, les tâches déjà en retard sont signalées une fois.
+ *
+ * Les rappels attendent dans une roue temporelle à une case par jour : WHEEL_DAYS cases
+ * couvrent les jours à venir, les échéances plus lointaines attendent dans une file triée
+ * par jour et descendent dans la roue à mesure qu'elle avance. Programmer coûte O(1) dans la
+ * roue, O(log J) au-delà (J jours distincts) ; annuler ne coûte rien : une entrée est
+ * revalidée auprès du gestionnaire quand son jour arrive (tâche présente, non terminée,
+ * même échéance) et écartée sinon. Aucun parcours périodique : un seul réveil, à minuit.
+ *
+ * Tout se passe sur un thread dédié, auquel les modifications du gestionnaire sont
+ * transmises dans l'ordre ; le Listener y est aussi appelé.
+ */
+public class TaskReminders implements TaskManager.ChangeListener, Closeable {
+    public enum Kind {
+        DUE, OVERDUE
+    }
+
+    // Tâches à rappeler, regroupées par traitement ; appelé sur le thread des rappels
+    public interface Listener {
+        void remind(Kind kind, List<Task> tasks);
+    }
+
+    // Puissance de deux : la case d'un jour est jour & (WHEEL_DAYS - 1)
+    private static final int WHEEL_DAYS = 512;
+    // Bit de poids faible d'une entrée (identifiant << 1) : rappel de retard
+    private static final long OVERDUE_FLAG = 1;
+
+    private final TaskManager manager;
+    private final Clock clock;
+    private final Listener listener;
+    private final ScheduledExecutorService executor;
+
+    // État du thread des rappels
+    private final EntryList[] wheel = new EntryList[WHEEL_DAYS];
+    private final TreeMap<Integer, EntryList> later = new TreeMap<>();
+    private int currentDay;
+    private ScheduledFuture<?> wakeUp;
+    private final Map<Long, Task> dueBatch = new LinkedHashMap<>();
+    private final Map<Long, Task> overdueBatch = new LinkedHashMap<>();
+
+    // Identifiants avec indicateur de retard, dans un tableau qui grandit
+    private static final class EntryList {
+        long[] entries = new long[4];
+        int size;
+
+        void add(long entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+
+        void addAll(EntryList other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.entries[i]);
+            }
+        }
+    }
+
+    /**
+     * Commence à suivre manager : les tâches existantes sont programmées (et celles déjà en
+     * retard signalées) sur le thread des rappels, puis chaque modification.
+     */
+    public TaskReminders(TaskManager manager, Clock clock, Listener listener) {
+        this.manager = manager;
+        this.clock = clock;
+        this.listener = listener;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "task-reminders");
+            thread.setDaemon(true);
+            return thread;
+        });
+        currentDay = today();
+        manager.addChangeListener(this);
+        executor.execute(this::rebuild);
+    }
+
+    @Override
+    public void taskChanged(Task previous, Task next) {
+        // Sous le verrou du gestionnaire : seulement transmettre
+        if (needsScheduling(previous, next)) {
+            executor.execute(() -> {
+                schedule(next.getId(), next.getDueEpochDay());
+                deliver();
+            });
+        }
+    }
+
+    // Un lot : une seule tâche confiée au thread des rappels, et une seule livraison
+    @Override
+    public void tasksChanged(List<Task> previous, List<Task> next) {
+        List<Task> scheduled = new ArrayList<>();
+        for (int i = 0; i < previous.size(); i++) {
+            if (needsScheduling(previous.get(i), next.get(i))) {
+                scheduled.add(next.get(i));
+            }
+        }
+        if (!scheduled.isEmpty()) {
+            executor.execute(() -> {
+                for (Task task : scheduled) {
+                    schedule(task.getId(), task.getDueEpochDay());
+                }
+                deliver();
+            });
+        }
+    }
+
+    private static boolean needsScheduling(Task previous, Task next) {
+        return next != null && next.hasDueDate() && !next.isCompleted() && (previous == null
+                || previous.isCompleted() || previous.getDueEpochDay() != next.getDueEpochDay());
+    }
+
+    @Override
+    public void tasksReplaced() {
+        executor.execute(this::rebuild);
+    }
+
+    // Reprendre l'heure tout de suite (après une mise en veille, un changement de fuseau...)
+    public void checkNow() {
+        executor.execute(this::advance);
+    }
+
+    @Override
+    public void close() {
+        manager.removeChangeListener(this);
+        executor.shutdownNow();
+    }
+
+    // Tout reprogrammer à partir de l'état du gestionnaire (démarrage, chargement)
+    private void rebuild() {
+        Arrays.fill(wheel, null);
+        later.clear();
+        currentDay = today();
+        manager.stream().forEach(task -> {
+            if (task.hasDueDate() && !task.isCompleted()) {
+                schedule(task.getId(), task.getDueEpochDay());
+            }
+        });
+        deliver();
+        scheduleWakeUp();
+    }
+
+    private void schedule(long id, int dueDay) {
+        long entry = id << 1;
+        if (dueDay < currentDay) {
+            fire(entry | OVERDUE_FLAG, dueDay + 1);
+        } else if (dueDay == currentDay) {
+            fire(entry, dueDay);
+        } else {
+            add(entry, dueDay);
+        }
+    }
+
+    // Range une entrée pour le jour day, postérieur au jour courant
+    private void add(long entry, int day) {
+        if (day - currentDay < WHEEL_DAYS) {
+            int slot = day & (WHEEL_DAYS - 1);
+            if (wheel[slot] == null) {
+                wheel[slot] = new EntryList();
+            }
+            wheel[slot].add(entry);
+        } else {
+            later.computeIfAbsent(day, d -> new EntryList()).add(entry);
+        }
+    }
+
+    // Entrée arrivée à son jour : rappel si la tâche est toujours concernée
+    private void fire(long entry, int day) {
+        long id = entry >>> 1;
+        boolean overdue = (entry & OVERDUE_FLAG) != 0;
+        Task task = manager.getTaskById(id);
+        int dueDay = overdue ? day - 1 : day;
+        if (task == null || task.isCompleted() || task.getDueEpochDay() != dueDay) {
+            return; // annulée depuis
+        }
+        if (overdue) {
+            overdueBatch.put(id, task);
+        } else {
+            dueBatch.put(id, task);
+            add(entry | OVERDUE_FLAG, day + 1);
+        }
+    }
+
+    // Avancer jour par jour jusqu'à aujourd'hui, puis se réveiller au prochain minuit
+    private void advance() {
+        int today = today();
+        while (currentDay < today) {
+            currentDay++;
+            int slot = currentDay & (WHEEL_DAYS - 1);
+            EntryList entries = wheel[slot];
+            wheel[slot] = null;
+            // Les échéances lointaines entrent dans la roue quand leur jour devient proche
+            while (!later.isEmpty() && later.firstKey() - currentDay < WHEEL_DAYS) {
+                Map.Entry<Integer, EntryList> first = later.pollFirstEntry();
+                if (first.getKey() == currentDay) {
+                    if (entries == null) {
+                        entries = new EntryList();
+                    }
+                    entries.addAll(first.getValue());
+                } else {
+                    int target = first.getKey() & (WHEEL_DAYS - 1);
+                    if (wheel[target] == null) {
+                        wheel[target] = new EntryList();
+                    }
+                    wheel[target].addAll(first.getValue());
+                }
+            }
+            if (entries != null) {
+                // Une tâche reprogrammée plusieurs fois pour le même jour n'est rappelée qu'une fois
+                Set<Long> seen = entries.size > 1 ? new HashSet<>() : null;
+                for (int i = 0; i < entries.size; i++) {
+                    if (seen == null || seen.add(entries.entries[i])) {
+                        fire(entries.entries[i], currentDay);
+                    }
+                }
+            }
+        }
+        deliver();
+        scheduleWakeUp();
+    }
+
+    private void scheduleWakeUp() {
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+        }
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        ZonedDateTime midnight = now.toLocalDate().plusDays(1).atStartOfDay(clock.getZone());
+        long delay = Math.max(0, Duration.between(now, midnight).toMillis()) + 1_000;
+        wakeUp = executor.schedule(this::advance, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void deliver() {
+        deliver(Kind.DUE, dueBatch);
+        deliver(Kind.OVERDUE, overdueBatch);
+    }
+
+    private void deliver(Kind kind, Map<Long, Task> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Task> tasks = new ArrayList<>(batch.values());
+        batch.clear();
+        try {
+            listener.remind(kind, tasks);
+        } catch (RuntimeException e) {
+            // Signalée sans arrêter le thread des rappels
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    private int today() {
+        return (int) LocalDate.now(clock).toEpochDay();
+    }
+}
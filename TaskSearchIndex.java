@@ -0,0 +1,295 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Index inversé de trigrammes pour la recherche par sous-chaîne.
+ *
+ * Chaque tâche indexée reçoit un numéro de document croissant ; les listes de postings
+ * sont donc triées et l'ordre des documents suit l'ordre d'insertion (celui des identifiants,
+ * sauf après la remise d'une tâche supprimée : voir isInIdOrder). Une requête
+ * intersecte les postings de ses trigrammes puis vérifie les candidats sur le texte
+ * en minuscules (titre, statut, description) conservé par document.
+ */
+public class TaskSearchIndex {
+    // Séparateur entre les champs : ne peut pas apparaître dans une requête saisie
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private final PostingsTable postings = new PostingsTable();
+    private final Map<Task, Integer> docByTask = new IdentityHashMap<>();
+    private final List<Task> tasks = new ArrayList<>();   // document -> tâche (null si supprimée)
+    private final List<String> texts = new ArrayList<>(); // document -> texte en minuscules
+    private int deadDocs;
+    private long stalePostings;
+    private long livePostings;
+    // Plus grand identifiant indexé, et vrai tant que les documents suivent les identifiants
+    private long maxId;
+    private boolean inIdOrder = true;
+
+    // Table de hachage à adressage ouvert trigramme -> postings (clé long, sans boxing)
+    private static class PostingsTable {
+        long[] keys = new long[1 << 12];
+        Postings[] values = new Postings[1 << 12];
+        int size;
+
+        Postings get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return null;
+        }
+
+        Postings getOrCreate(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            for (; values[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            Postings created = new Postings();
+            keys[slot] = key;
+            values[slot] = created;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return created;
+        }
+
+        void clear() {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Postings[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Postings[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int slot = hash(oldKeys[i]) & mask;
+                    while (values[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32);
+        }
+    }
+
+    // Liste triée de numéros de documents
+    private static class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] >= doc) {
+                int position = Arrays.binarySearch(docs, 0, size, doc);
+                if (position >= 0) {
+                    return;
+                }
+                insertAt(-position - 1, doc);
+                return;
+            }
+            insertAt(size, doc);
+        }
+
+        private void insertAt(int position, int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, position, docs, position + 1, size - position);
+            docs[position] = doc;
+            size++;
+        }
+
+        boolean contains(int doc) {
+            return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+        }
+    }
+
+    public TaskSearchIndex(List<Task> initialTasks) {
+        for (Task task : initialTasks) {
+            add(task);
+        }
+    }
+
+    // Indexer une tâche ajoutée en fin de liste
+    public void add(Task task) {
+        if (docByTask.containsKey(task)) {
+            return;
+        }
+        if (task.getId() < maxId) {
+            // Tâche remise (undo) : son document passe après ceux d'identifiants plus grands
+            inIdOrder = false;
+        }
+        maxId = Math.max(maxId, task.getId());
+        int doc = tasks.size();
+        String text = textOf(task);
+        tasks.add(task);
+        texts.add(text);
+        docByTask.put(task, doc);
+        livePostings += indexTrigrams(doc, text);
+    }
+
+    /**
+     * Remplacer une tâche en conservant son numéro de document (et donc sa place dans
+     * l'ordre des résultats). Les postings des anciens trigrammes sont laissés en place :
+     * la vérification sur le texte les écarte, et ils disparaissent au prochain nettoyage.
+     */
+    public void replace(Task oldTask, Task newTask) {
+        Integer doc = docByTask.remove(oldTask);
+        if (doc == null) {
+            add(newTask);
+            return;
+        }
+        String text = textOf(newTask);
+        retire(doc);
+        tasks.set(doc, newTask);
+        texts.set(doc, text);
+        docByTask.put(newTask, doc);
+        livePostings += indexTrigrams(doc, text);
+        compactIfNeeded();
+    }
+
+    public void remove(Task task) {
+        Integer doc = docByTask.remove(task);
+        if (doc == null) {
+            return;
+        }
+        retire(doc);
+        tasks.set(doc, null);
+        texts.set(doc, null);
+        deadDocs++;
+        compactIfNeeded();
+    }
+
+    /**
+     * Vrai si les documents, donc les résultats de search, suivent l'ordre des identifiants ;
+     * faux après l'ajout d'une tâche d'identifiant inférieur à un autre, jusqu'au compactage.
+     */
+    public boolean isInIdOrder() {
+        return inIdOrder;
+    }
+
+    /**
+     * Tâches dont le titre, le statut ou la description contient la requête (insensible à
+     * la casse), dans l'ordre d'insertion.
+     */
+    public List<Task> search(String query) {
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        List<Task> results = new ArrayList<>();
+        if (lowerQuery.length() < 3) {
+            // Pas de trigramme : parcours du texte déjà en minuscules
+            for (int doc = 0; doc < texts.size(); doc++) {
+                String text = texts.get(doc);
+                if (text != null && text.contains(lowerQuery)) {
+                    results.add(tasks.get(doc));
+                }
+            }
+            return results;
+        }
+
+        int count = lowerQuery.length() - 2;
+        Postings[] lists = new Postings[count];
+        for (int i = 0; i < count; i++) {
+            Postings list = postings.get(trigram(lowerQuery, i));
+            if (list == null) {
+                return results;
+            }
+            lists[i] = list;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        Postings smallest = lists[0];
+        candidates: for (int i = 0; i < smallest.size; i++) {
+            int doc = smallest.docs[i];
+            for (int j = 1; j < lists.length; j++) {
+                if (lists[j] != smallest && !lists[j].contains(doc)) {
+                    continue candidates;
+                }
+            }
+            String text = texts.get(doc);
+            if (text != null && text.contains(lowerQuery)) {
+                results.add(tasks.get(doc));
+            }
+        }
+        return results;
+    }
+
+    private int indexTrigrams(int doc, String text) {
+        int indexed = 0;
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            if (text.charAt(i + 1) == FIELD_SEPARATOR || text.charAt(i + 2) == FIELD_SEPARATOR
+                    || text.charAt(i) == FIELD_SEPARATOR) {
+                continue;
+            }
+            postings.getOrCreate(trigram(text, i)).add(doc);
+            indexed++;
+        }
+        return indexed;
+    }
+
+    // Les postings du document deviennent obsolètes
+    private void retire(int doc) {
+        int count = Math.max(0, texts.get(doc).length() - 2);
+        stalePostings += count;
+        livePostings = Math.max(0, livePostings - count);
+    }
+
+    // Reconstruire les postings quand les entrées obsolètes dominent
+    private void compactIfNeeded() {
+        if (stalePostings < 1024 || stalePostings < livePostings) {
+            return;
+        }
+        List<Task> live = new ArrayList<>(tasks.size() - deadDocs);
+        for (Task task : tasks) {
+            if (task != null) {
+                live.add(task);
+            }
+        }
+        if (!inIdOrder) {
+            // La reconstruction remet les documents dans l'ordre des identifiants
+            live.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        }
+        postings.clear();
+        docByTask.clear();
+        tasks.clear();
+        texts.clear();
+        deadDocs = 0;
+        stalePostings = 0;
+        livePostings = 0;
+        maxId = 0;
+        inIdOrder = true;
+        for (Task task : live) {
+            add(task);
+        }
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    private static String textOf(Task task) {
+        return (nullToEmpty(task.getTitle()) + FIELD_SEPARATOR + nullToEmpty(task.getStatus()) + FIELD_SEPARATOR
+                + nullToEmpty(task.getDescription())).toLowerCase(Locale.ROOT);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
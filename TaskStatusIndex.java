@@ -0,0 +1,170 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compteurs maintenus avec chaque état de TaskManager : un TaskBitmap des identifiants par
+ * statut, et le nombre de tâches en retard (non terminées, échéance passée) pour un jour
+ * donné. Compter un statut, ou les tâches en retard du jour déjà compté, coûte O(1) ; une
+ * modification met à jour au plus deux bitmaps et le compteur, un lot chaque bitmap touché
+ * une seule fois. Immuable, comme l'état.
+ */
+public final class TaskStatusIndex {
+    static final TaskStatusIndex EMPTY = new TaskStatusIndex(new TaskBitmap[0], Task.NO_DATE, 0);
+
+    // Par Task.statusSlot du code, null si aucune tâche ; ne couvre que les codes déjà rencontrés
+    private final TaskBitmap[] bitmaps;
+    // Tâches non terminées dont l'échéance précède overdueDay ; NO_DATE : pas encore compté
+    private final int overdueDay;
+    private final int overdueCount;
+
+    private TaskStatusIndex(TaskBitmap[] bitmaps, int overdueDay, int overdueCount) {
+        this.bitmaps = bitmaps;
+        this.overdueDay = overdueDay;
+        this.overdueCount = overdueCount;
+    }
+
+    // Identifiants des tâches du code de statut donné
+    public TaskBitmap bitmap(short code) {
+        return bitmapAt(Task.statusSlot(code));
+    }
+
+    public int count(short code) {
+        int slot = Task.statusSlot(code);
+        return slot < bitmaps.length && bitmaps[slot] != null ? bitmaps[slot].cardinality() : 0;
+    }
+
+    private TaskBitmap bitmapAt(int slot) {
+        TaskBitmap bitmap = slot < bitmaps.length ? bitmaps[slot] : null;
+        return bitmap != null ? bitmap : TaskBitmap.empty();
+    }
+
+    // Jour pour lequel les tâches en retard sont comptées, NO_DATE si elles ne le sont pas
+    public int getOverdueDay() {
+        return overdueDay;
+    }
+
+    public int getOverdueCount() {
+        return overdueCount;
+    }
+
+    TaskStatusIndex withOverdue(int day, int count) {
+        return new TaskStatusIndex(bitmaps, day, count);
+    }
+
+    // previous (s'il existe) remplacé par next (s'il existe)
+    TaskStatusIndex replace(Task previous, Task next) {
+        TaskBitmap[] updated = bitmaps;
+        boolean sameStatus = previous != null && next != null && previous.getId() == next.getId()
+                && previous.getStatusCode() == next.getStatusCode();
+        if (!sameStatus) {
+            int nextSlot = next != null ? Task.statusSlot(next.getStatusCode()) : 0;
+            updated = Arrays.copyOf(bitmaps, Math.max(bitmaps.length, nextSlot + 1));
+            if (previous != null) {
+                int slot = Task.statusSlot(previous.getStatusCode());
+                TaskBitmap bitmap = bitmapAt(slot).without(previous.getId());
+                updated[slot] = bitmap.isEmpty() ? null : bitmap;
+            }
+            if (next != null) {
+                updated[nextSlot] = bitmapAt(nextSlot).with(next.getId());
+            }
+        }
+        int overdue = overdueCount;
+        if (overdueDay != Task.NO_DATE) {
+            overdue += (isOverdue(next, overdueDay) ? 1 : 0) - (isOverdue(previous, overdueDay) ? 1 : 0);
+        }
+        return new TaskStatusIndex(updated, overdueDay, overdue);
+    }
+
+    /**
+     * Lot de remplacements (previous.get(i) par next.get(i), l'un des deux pouvant être
+     * null), par identifiant croissant : les identifiants qui changent de statut sont réunis
+     * par code puis retirés et ajoutés bloc par bloc, au lieu d'une recopie par tâche.
+     */
+    TaskStatusIndex replaceAll(List<Task> previous, List<Task> next) {
+        // Les tâches reçues existent déjà : leurs codes sont tous attribués
+        int slots = Task.statusCount() + 1;
+        TaskBitmap.Builder[] removed = new TaskBitmap.Builder[slots];
+        TaskBitmap.Builder[] added = new TaskBitmap.Builder[slots];
+        int overdue = overdueCount;
+        for (int i = 0; i < previous.size(); i++) {
+            Task before = previous.get(i);
+            Task after = next.get(i);
+            if (before == null || after == null || before.getStatusCode() != after.getStatusCode()) {
+                if (before != null) {
+                    builder(removed, before.getStatusCode()).add(before.getId());
+                }
+                if (after != null) {
+                    builder(added, after.getStatusCode()).add(after.getId());
+                }
+            }
+            if (overdueDay != Task.NO_DATE) {
+                overdue += (isOverdue(after, overdueDay) ? 1 : 0) - (isOverdue(before, overdueDay) ? 1 : 0);
+            }
+        }
+        TaskBitmap[] updated = Arrays.copyOf(bitmaps, Math.max(bitmaps.length, slots));
+        for (int slot = 0; slot < slots; slot++) {
+            if (removed[slot] == null && added[slot] == null) {
+                continue;
+            }
+            TaskBitmap bitmap = bitmapAt(slot);
+            if (removed[slot] != null) {
+                bitmap = bitmap.andNot(removed[slot].build());
+            }
+            if (added[slot] != null) {
+                bitmap = bitmap.or(added[slot].build());
+            }
+            updated[slot] = bitmap.isEmpty() ? null : bitmap;
+        }
+        return new TaskStatusIndex(updated, overdueDay, overdue);
+    }
+
+    private static TaskBitmap.Builder builder(TaskBitmap.Builder[] builders, short code) {
+        int slot = Task.statusSlot(code);
+        if (builders[slot] == null) {
+            builders[slot] = new TaskBitmap.Builder();
+        }
+        return builders[slot];
+    }
+
+    static boolean isOverdue(Task task, int today) {
+        return task != null && !task.isCompleted() && task.hasDueDate() && task.getDueEpochDay() < today;
+    }
+
+    /**
+     * Construit l'index de tâches données par identifiant croissant (chargement), en comptant
+     * au passage les tâches en retard au jour today.
+     */
+    static final class Builder {
+        private TaskBitmap.Builder[] builders = new TaskBitmap.Builder[8];
+        private final int today;
+        private int overdue;
+
+        Builder(int today) {
+            this.today = today;
+        }
+
+        void add(long id, short statusCode, int dueEpochDay) {
+            int slot = Task.statusSlot(statusCode);
+            if (slot >= builders.length) {
+                builders = Arrays.copyOf(builders, Math.max(slot + 1, builders.length * 2));
+            }
+            if (builders[slot] == null) {
+                builders[slot] = new TaskBitmap.Builder();
+            }
+            builders[slot].add(id);
+            if (dueEpochDay != Task.NO_DATE && dueEpochDay < today && statusCode != Task.COMPLETED_CODE) {
+                overdue++;
+            }
+        }
+
+        TaskStatusIndex build() {
+            TaskBitmap[] bitmaps = new TaskBitmap[builders.length];
+            for (int slot = 0; slot < builders.length; slot++) {
+                if (builders[slot] != null) {
+                    bitmaps[slot] = builders[slot].build();
+                }
+            }
+            return new TaskStatusIndex(bitmaps, today, overdue);
+        }
+    }
+}
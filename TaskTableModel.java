@@ -0,0 +1,359 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Modèle de table virtuel et paresseux : seules les lignes affichées (plus une fenêtre de
+ * préchargement) sont décodées, par pages de PAGE_SIZE lignes, sur un thread d'arrière-plan.
+ * Les pages décodées (textes, date formatée, statut) sont gardées dans un cache LRU de
+ * MAX_PAGES pages : la mémoire et le temps passé sur l'EDT ne dépendent pas du nombre de
+ * tâches. Une ligne pas encore décodée s'affiche vide, puis est repeinte à l'arrivée de sa
+ * page.
+ *
+ * Les lignes sont lues dans un instantané immuable (liste des tâches du gestionnaire ou
+ * résultat d'une recherche), repris à chaque modification signalée ; les pages de
+ * l'instantané précédent restent affichées jusqu'à ce que les nouvelles arrivent, pour ne
+ * pas faire clignoter la table. Toutes les méthodes s'appellent sur l'EDT.
+ */
+public class TaskTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    public static final int TITLE_COLUMN = 0;
+    public static final int DESCRIPTION_COLUMN = 1;
+    public static final int DATE_COLUMN = 2;
+    public static final int STATUS_COLUMN = 3;
+
+    private static final String[] COLUMN_NAMES = { "Titre", "Description", "Date d'échéance", "Statut" };
+
+    static final int PAGE_SIZE = 256;
+    // 16 384 lignes décodées au plus
+    private static final int MAX_PAGES = 64;
+    // Pages préchargées de part et d'autre de la page affichée
+    private static final int PREFETCH_PAGES = 2;
+    // Au-delà, les demandes les plus anciennes (pages sorties de l'écran) sont abandonnées
+    private static final int MAX_QUEUED_PAGES = 16;
+
+    // Demandes de toutes les tables, la plus récente en tête
+    private static final BlockingDeque<PageRequest> DECODE_QUEUE = new LinkedBlockingDeque<>();
+
+    static {
+        Thread decoder = new Thread(TaskTableModel::decodePages, "task-table-rows");
+        decoder.setDaemon(true);
+        decoder.start();
+    }
+
+    // Ligne décodée, prête à afficher
+    private static final class Row {
+        final long id;
+        final String title;
+        final String description;
+        final String date;
+        final String status;
+        final boolean completed;
+
+        Row(Task task) {
+            id = task.getId();
+            title = task.getTitle();
+            description = task.getDescription();
+            date = task.getFormattedDate();
+            status = task.getStatus();
+            completed = task.isCompleted();
+        }
+    }
+
+    private static final class Page {
+        final long generation;
+        final Row[] rows;
+
+        Page(long generation, Row[] rows) {
+            this.generation = generation;
+            this.rows = rows;
+        }
+    }
+
+    private static final class PageRequest {
+        final TaskTableModel model;
+        final long generation;
+        final List<Task> tasks;
+        final int page;
+
+        PageRequest(TaskTableModel model, long generation, List<Task> tasks, int page) {
+            this.model = model;
+            this.generation = generation;
+            this.tasks = tasks;
+            this.page = page;
+        }
+    }
+
+    private final TaskManager taskManager;
+    private List<Task> filteredTasks; // null quand toutes les tâches sont affichées
+    // Instantané affiché, repris au premier accès qui suit une modification
+    private List<Task> tasks;
+    // Incrémentée à chaque modification : les pages plus anciennes sont à redécoder
+    private volatile long generation;
+    private final Map<Integer, Page> pages = new LinkedHashMap<Integer, Page>(MAX_PAGES * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    // Pages demandées au décodeur pour la génération courante
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+    private int lastPrefetchedPage = -1;
+
+    public TaskTableModel(TaskManager taskManager) {
+        this.taskManager = taskManager;
+    }
+
+    // Obtenir la tâche affichée à une ligne (lue directement, pour la sélection)
+    public Task getTaskAt(int row) {
+        List<Task> current = tasks();
+        return row >= 0 && row < current.size() ? current.get(row) : null;
+    }
+
+    // Identifiant de la tâche affichée à une ligne (-1 si aucune)
+    public long getTaskIdAt(int row) {
+        Task task = getTaskAt(row);
+        return task != null ? task.getId() : -1;
+    }
+
+    // Ligne où est affichée la tâche (-1 si elle n'est pas affichée)
+    public int rowOfTask(long id) {
+        if (filteredTasks == null) {
+            return taskManager.indexOfTask(id);
+        }
+        for (int row = 0; row < filteredTasks.size(); row++) {
+            if (filteredTasks.get(row).getId() == id) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    // Statut de la ligne lu dans sa page décodée (faux tant qu'elle ne l'est pas)
+    public boolean isCompletedAt(int row) {
+        Row decoded = rowAt(row);
+        return decoded != null && decoded.completed;
+    }
+
+    public boolean isFiltered() {
+        return filteredTasks != null;
+    }
+
+    // Afficher toutes les tâches du gestionnaire
+    public void showAll() {
+        filteredTasks = null;
+        invalidate();
+        fireTableDataChanged();
+    }
+
+    // Afficher le résultat d'une recherche
+    public void showFiltered(List<Task> tasks) {
+        filteredTasks = tasks;
+        invalidate();
+        fireTableDataChanged();
+    }
+
+    // Une tâche a été ajoutée à la position index du gestionnaire
+    public void taskInserted(int index) {
+        if (filteredTasks != null) {
+            showAll();
+        } else {
+            invalidate();
+            fireTableRowsInserted(index, index);
+        }
+    }
+
+    // La tâche à la position index du gestionnaire a été modifiée
+    public void taskUpdated(int index) {
+        if (filteredTasks != null) {
+            showAll();
+        } else {
+            invalidate();
+            fireTableRowsUpdated(index, index);
+        }
+    }
+
+    // La tâche à la position oldIndex a été modifiée et se trouve maintenant à newIndex
+    public void taskMoved(int oldIndex, int newIndex) {
+        if (filteredTasks != null) {
+            showAll();
+        } else {
+            // Seules les lignes entre les deux positions se décalent
+            invalidate();
+            fireTableRowsUpdated(Math.min(oldIndex, newIndex), Math.max(oldIndex, newIndex));
+        }
+    }
+
+    // La tâche qui était à la position index du gestionnaire a été supprimée
+    public void taskDeleted(int index) {
+        if (filteredTasks != null) {
+            showAll();
+        } else {
+            invalidate();
+            fireTableRowsDeleted(index, index);
+        }
+    }
+
+    // Un lot de tâches a été modifié ou supprimé : un seul événement pour toute la table
+    public void tasksChanged() {
+        if (filteredTasks != null) {
+            showAll();
+        } else {
+            invalidate();
+            fireTableDataChanged();
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return tasks().size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Row decoded = rowAt(row);
+        if (decoded == null) {
+            return null;
+        }
+        switch (column) {
+            case TITLE_COLUMN:
+                return decoded.title;
+            case DESCRIPTION_COLUMN:
+                return decoded.description;
+            case DATE_COLUMN:
+                return decoded.date;
+            case STATUS_COLUMN:
+                return decoded.status;
+            default:
+                return null;
+        }
+    }
+
+    private List<Task> tasks() {
+        if (tasks == null) {
+            tasks = filteredTasks != null ? filteredTasks : taskManager.getAllTasks();
+        }
+        return tasks;
+    }
+
+    // Les pages gardées deviennent périmées : affichées encore, mais redemandées
+    private void invalidate() {
+        tasks = null;
+        generation++;
+        pending.clear();
+        lastPrefetchedPage = -1;
+    }
+
+    /**
+     * Ligne décodée (éventuellement d'un instantané précédent), null si sa page n'est pas
+     * encore arrivée. Demande la page si besoin, et ses voisines à chaque changement de page.
+     */
+    private Row rowAt(int row) {
+        if (row < 0 || row >= getRowCount()) {
+            return null;
+        }
+        int pageIndex = row / PAGE_SIZE;
+        Page page = pages.get(pageIndex);
+        if (page == null || page.generation != generation) {
+            request(pageIndex);
+        }
+        if (pageIndex != lastPrefetchedPage) {
+            lastPrefetchedPage = pageIndex;
+            int lastPage = (getRowCount() - 1) / PAGE_SIZE;
+            for (int i = 1; i <= PREFETCH_PAGES; i++) {
+                prefetch(pageIndex + i, lastPage);
+                prefetch(pageIndex - i, lastPage);
+            }
+        }
+        int offset = row % PAGE_SIZE;
+        return page != null && offset < page.rows.length ? page.rows[offset] : null;
+    }
+
+    private void prefetch(int pageIndex, int lastPage) {
+        if (pageIndex < 0 || pageIndex > lastPage) {
+            return;
+        }
+        Page page = pages.get(pageIndex);
+        if (page == null || page.generation != generation) {
+            request(pageIndex);
+        }
+    }
+
+    private void request(int pageIndex) {
+        if (!pending.add(pageIndex)) {
+            return;
+        }
+        DECODE_QUEUE.offerFirst(new PageRequest(this, generation, tasks(), pageIndex));
+        while (DECODE_QUEUE.size() > MAX_QUEUED_PAGES) {
+            PageRequest dropped = DECODE_QUEUE.pollLast();
+            if (dropped != null) {
+                dropped.model.pending.remove(dropped.page);
+            }
+        }
+    }
+
+    // Arrivée d'une page décodée, sur l'EDT
+    private void pageLoaded(PageRequest request, Row[] rows) {
+        if (request.generation != generation) {
+            return; // instantané remplacé entre-temps ; la page a déjà été redemandée
+        }
+        pending.remove(request.page);
+        pages.put(request.page, new Page(request.generation, rows));
+        int first = request.page * PAGE_SIZE;
+        int last = Math.min(first + rows.length, getRowCount()) - 1;
+        if (first <= last) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    // Boucle du thread de décodage : la demande la plus récente d'abord
+    private static void decodePages() {
+        while (true) {
+            PageRequest request;
+            try {
+                request = DECODE_QUEUE.takeFirst();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (request.generation != request.model.generation) {
+                continue;
+            }
+            try {
+                int first = request.page * PAGE_SIZE;
+                int count = Math.max(0, Math.min(PAGE_SIZE, request.tasks.size() - first));
+                Row[] rows = new Row[count];
+                for (int i = 0; i < count; i++) {
+                    rows[i] = new Row(request.tasks.get(first + i));
+                }
+                SwingUtilities.invokeLater(() -> request.model.pageLoaded(request, rows));
+            } catch (RuntimeException e) {
+                // Page abandonnée : elle sera redemandée au prochain affichage
+                request.model.pending.remove(request.page);
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Lecture de l'ancien fichier texte (une tâche "titre|description|date|statut" par ligne).
+ * Le fichier est découpé en plages d'octets alignées sur les fins de ligne, analysées en
+ * parallèle sur le pool ForkJoin commun puis recollées dans l'ordre : le résultat est
+ * identique à une lecture ligne par ligne avec BufferedReader.
+ */
+public class TaskTextLoader {
+    // En dessous de cette taille, un seul morceau : le parallélisme ne paierait pas
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    // Chaque morceau est lu dans un tableau d'octets
+    private static final int MAX_CHUNK_SIZE = 64 << 20;
+    // Lecture par petits blocs pour trouver la fin de ligne suivant une limite
+    private static final int SCAN_BUFFER_SIZE = 8 << 10;
+
+    // Tâches lues et séquence du journal trouvée en en-tête (-1 si aucune)
+    public static final class Result {
+        public final List<Task> tasks;
+        public final long journalSequence;
+
+        Result(List<Task> tasks, long journalSequence) {
+            this.tasks = tasks;
+            this.journalSequence = journalSequence;
+        }
+    }
+
+    // Résultat partiel d'une plage d'octets
+    private static final class Chunk {
+        final List<Task> tasks = new ArrayList<>();
+        long journalSequence = -1;
+    }
+
+    private TaskTextLoader() {
+    }
+
+    /**
+     * Lit le fichier. journalHeader est le préfixe des lignes portant la séquence du journal
+     * (la dernière l'emporte). progress, facultatif, reçoit les octets lus au fil des morceaux
+     * et peut interrompre la lecture en levant une exception.
+     */
+    public static Result load(Path path, Charset charset, String journalHeader, TaskManager.ProgressListener progress)
+            throws IOException {
+        if (!isAsciiCompatible(charset)) {
+            // Les fins de ligne ne sont pas des octets isolés : lecture séquentielle
+            return loadSequential(path, charset, journalHeader);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = chunkBounds(channel, size);
+            Object progressLock = new Object();
+            long[] bytesRead = new long[1];
+            int[] tasksRead = new int[1];
+
+            List<Chunk> chunks;
+            try {
+                chunks = IntStream.range(0, bounds.length - 1).parallel()
+                        .mapToObj(i -> {
+                            Chunk chunk = parseChunk(channel, bounds[i], bounds[i + 1], charset, journalHeader);
+                            if (progress != null) {
+                                // Avancement monotone malgré les morceaux terminés dans le désordre
+                                synchronized (progressLock) {
+                                    bytesRead[0] += bounds[i + 1] - bounds[i];
+                                    tasksRead[0] += chunk.tasks.size();
+                                    progress.progress(bytesRead[0], size, tasksRead[0], -1);
+                                }
+                            }
+                            return chunk;
+                        })
+                        .collect(Collectors.toList());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            int total = 0;
+            for (Chunk chunk : chunks) {
+                total += chunk.tasks.size();
+            }
+            List<Task> tasks = new ArrayList<>(total);
+            long sequence = -1;
+            for (Chunk chunk : chunks) {
+                tasks.addAll(chunk.tasks);
+                if (chunk.journalSequence != -1) {
+                    sequence = chunk.journalSequence;
+                }
+            }
+            return new Result(tasks, sequence);
+        }
+    }
+
+    // Lecture ligne par ligne (référence, et repli pour les encodages multi-octets)
+    public static Result loadSequential(Path path, Charset charset, String journalHeader) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        long sequence = -1;
+        // Comme FileReader, les octets invalides sont remplacés au lieu de lever une erreur
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(path), charset))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(journalHeader)) {
+                    sequence = Long.parseLong(line.substring(journalHeader.length()));
+                    continue;
+                }
+                Task task = Task.fromString(line);
+                if (task != null) {
+                    tasks.add(task);
+                }
+            }
+        }
+        return new Result(tasks, sequence);
+    }
+
+    /**
+     * Limites des morceaux : la taille visée est repoussée jusqu'au début de ligne suivant,
+     * pour qu'aucune ligne ne soit coupée (une limite suit toujours un '\n').
+     */
+    private static long[] chunkBounds(FileChannel channel, long size) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long chunkCount = Math.max(1, Math.min(size / MIN_CHUNK_SIZE, parallelism * 4L));
+        chunkCount = Math.max(chunkCount, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        long target = (size + chunkCount - 1) / Math.max(1, chunkCount);
+
+        long[] bounds = new long[(int) chunkCount + 1];
+        int count = 1;
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = 0;
+        while (position < size) {
+            long next = nextLineStart(channel, Math.min(size, position + Math.max(1, target)), size, scan);
+            // Une ligne très longue agrandit son morceau, dans la limite d'un tableau d'octets
+            if (next - position > Integer.MAX_VALUE - 8) {
+                throw new IOException("Ligne trop longue dans le fichier de tâches");
+            }
+            if (count == bounds.length) {
+                bounds = Arrays.copyOf(bounds, count * 2);
+            }
+            bounds[count++] = next;
+            position = next;
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    // Position suivant le premier '\n' à partir de from - 1 (from si elle suit déjà une fin de ligne)
+    private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer scan) throws IOException {
+        long position = from - 1;
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // Analyse les lignes d'une plage ; les fins de ligne sont celles de BufferedReader (\n, \r, \r\n)
+    private static Chunk parseChunk(FileChannel channel, long start, long end, Charset charset, String journalHeader) {
+        Chunk chunk = new Chunk();
+        byte[] bytes = new byte[(int) (end - start)];
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new EOFException("Fichier de tâches tronqué pendant la lecture");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int length = bytes.length;
+        int lineStart = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i < length && bytes[i] != '\n' && bytes[i] != '\r') {
+                continue;
+            }
+            if (i == length && lineStart == length) {
+                break;
+            }
+            String line = new String(bytes, lineStart, i - lineStart, charset);
+            if (line.startsWith(journalHeader)) {
+                chunk.journalSequence = Long.parseLong(line.substring(journalHeader.length()));
+            } else {
+                Task task = Task.fromString(line);
+                if (task != null) {
+                    chunk.tasks.add(task);
+                }
+            }
+            if (i + 1 < length && bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                i++;
+            }
+            lineStart = i + 1;
+        }
+        return chunk;
+    }
+
+    // Vrai si '\n', '\r' et '|' s'encodent sur un seul octet ASCII (UTF-8, ISO-8859-x, windows-125x...)
+    private static boolean isAsciiCompatible(Charset charset) {
+        return Arrays.equals("\n\r|".getBytes(charset), new byte[] { '\n', '\r', '|' });
+    }
+}
@@ -0,0 +1,552 @@
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Ensemble ordonné et indexable de tâches : treap immuable dont chaque nœud connaît la
+ * taille de son sous-arbre. Insertion, suppression, accès au i-ème élément et calcul du
+ * rang sont en O(log N). Une modification renvoie un nouvel arbre qui partage tous les
+ * nœuds non touchés avec l'ancien ; l'ancien reste donc utilisable tel quel (par exemple
+ * par une sauvegarde en arrière-plan).
+ *
+ * Le comparateur doit être total (départager par identifiant) et les champs utilisés pour
+ * la comparaison ne doivent pas changer tant que la tâche est dans l'arbre.
+ *
+ * Un nœud peut aussi représenter une plage consécutive d'un ordre de TaskColumns (Run) :
+ * des millions de tâches stockées hors du tas tiennent alors dans quelques nœuds. Une
+ * insertion ou une suppression au milieu d'une plage la coupe en deux plages.
+ */
+public final class TaskTree implements Iterable<Task> {
+    private static class Node {
+        final Task task;
+        final int priority;
+        final Node left;
+        final Node right;
+        final int size;
+
+        Node(Task task, int priority, Node left, Node right) {
+            this(task, priority, left, right, 1);
+        }
+
+        Node(Task task, int priority, Node left, Node right, int count) {
+            this.task = task;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = count + size(left) + size(right);
+        }
+
+        // Nombre de tâches portées par le nœud lui-même
+        int count() {
+            return 1;
+        }
+
+        Task at(int index) {
+            return task;
+        }
+
+        Node with(Node newLeft, Node newRight) {
+            return new Node(task, priority, newLeft, newRight);
+        }
+    }
+
+    // Plage [from, to) d'un ordre de colonnes, déjà triée selon le comparateur de l'arbre
+    private static final class Run extends Node {
+        final TaskColumns.Order order;
+        final int from;
+        final int to;
+
+        Run(TaskColumns.Order order, int from, int to, Node left, Node right) {
+            this(order, from, to, runPriority(order, from), left, right);
+        }
+
+        private Run(TaskColumns.Order order, int from, int to, int priority, Node left, Node right) {
+            super(null, priority, left, right, to - from);
+            this.order = order;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        int count() {
+            return to - from;
+        }
+
+        @Override
+        Task at(int index) {
+            return order.task(from + index);
+        }
+
+        @Override
+        Node with(Node newLeft, Node newRight) {
+            return new Run(order, from, to, priority, newLeft, newRight);
+        }
+    }
+
+    private final Node root;
+    private final Comparator<Task> comparator;
+
+    private TaskTree(Node root, Comparator<Task> comparator) {
+        this.root = root;
+        this.comparator = comparator;
+    }
+
+    public static TaskTree empty(Comparator<Task> comparator) {
+        return new TaskTree(null, comparator);
+    }
+
+    /**
+     * Construit l'arbre en O(N) à partir de tâches déjà triées selon le comparateur
+     * (construction d'un arbre cartésien sur les priorités).
+     */
+    public static TaskTree fromSorted(List<Task> sorted, Comparator<Task> comparator) {
+        Task[] stackTasks = new Task[64];
+        int[] stackPriorities = new int[64];
+        Node[] stackLefts = new Node[64];
+        int depth = 0;
+
+        // Pile des nœuds de la branche droite ; chaque entrée garde sa tâche et son fils gauche,
+        // le fils droit est connu lorsque l'entrée est dépilée.
+        for (Task task : sorted) {
+            int priority = priority(task);
+            Node left = null;
+            while (depth > 0 && stackPriorities[depth - 1] < priority) {
+                depth--;
+                left = new Node(stackTasks[depth], stackPriorities[depth], stackLefts[depth], left);
+            }
+            if (depth == stackTasks.length) {
+                int capacity = depth * 2;
+                stackTasks = Arrays.copyOf(stackTasks, capacity);
+                stackPriorities = Arrays.copyOf(stackPriorities, capacity);
+                stackLefts = Arrays.copyOf(stackLefts, capacity);
+            }
+            stackTasks[depth] = task;
+            stackPriorities[depth] = priority;
+            stackLefts[depth] = left;
+            depth++;
+        }
+
+        Node right = null;
+        while (depth > 0) {
+            depth--;
+            right = new Node(stackTasks[depth], stackPriorities[depth], stackLefts[depth], right);
+        }
+        return new TaskTree(right, comparator);
+    }
+
+    /**
+     * Arbre d'un seul nœud couvrant tout un ordre de colonnes (qui doit être trié selon
+     * le comparateur).
+     */
+    public static TaskTree fromColumns(TaskColumns.Order order, Comparator<Task> comparator) {
+        Node root = order.size() > 0 ? new Run(order, 0, order.size(), null, null) : null;
+        return new TaskTree(root, comparator);
+    }
+
+    public Comparator<Task> comparator() {
+        return comparator;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    // Tâche à la position index dans l'ordre de l'arbre
+    public Task get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Taille: " + size());
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index < leftSize + node.count()) {
+                return node.at(index - leftSize);
+            } else {
+                index -= leftSize + node.count();
+                node = node.right;
+            }
+        }
+    }
+
+    // Position de la tâche dans l'ordre de l'arbre, -1 si elle n'y est pas
+    public int indexOf(Task task) {
+        Node node = root;
+        int offset = 0;
+        while (node != null) {
+            int count = node.count();
+            int cmp = comparator.compare(task, node.at(0));
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp == 0) {
+                return offset + size(node.left);
+            } else if (count == 1 || comparator.compare(task, node.at(count - 1)) > 0) {
+                offset += size(node.left) + count;
+                node = node.right;
+            } else {
+                // À l'intérieur d'une plage
+                int position = lowerBound(node, task, false);
+                boolean found = comparator.compare(task, node.at(position)) == 0;
+                return found ? offset + size(node.left) + position : -1;
+            }
+        }
+        return -1;
+    }
+
+    public TaskTree insert(Task task) {
+        Node[] parts = split(root, task, false);
+        Node single = new Node(task, priority(task), null, null);
+        return new TaskTree(merge(merge(parts[0], single), parts[1]), comparator);
+    }
+
+    public TaskTree remove(Task task) {
+        Node[] lower = split(root, task, false);   // < task | >= task
+        Node[] upper = split(lower[1], task, true); // == task | > task
+        if (upper[0] == null) {
+            return this;
+        }
+        return new TaskTree(merge(lower[0], upper[1]), comparator);
+    }
+
+    /**
+     * Insère d'un coup des tâches triées selon le comparateur (absentes de l'arbre) : elles
+     * forment un arbre construit en O(k), réuni à celui-ci en descendant les deux à la fois
+     * (union de treaps). Seuls les nœuds où les deux arbres se croisent sont recopiés.
+     */
+    public TaskTree insertAll(List<Task> sorted) {
+        return sorted.isEmpty() ? this : new TaskTree(union(root, fromSorted(sorted, comparator).root), comparator);
+    }
+
+    // Retire d'un coup des tâches triées selon le comparateur ; celles qui manquent sont ignorées
+    public TaskTree removeAll(List<Task> sorted) {
+        return sorted.isEmpty() ? this : new TaskTree(removeAll(root, sorted, 0, sorted.size()), comparator);
+    }
+
+    /**
+     * Remplace d'un coup des tâches par de nouvelles versions qui gardent leur place dans
+     * l'ordre (égales aux anciennes selon le comparateur), triées : seuls les nœuds des
+     * chemins menant aux tâches remplacées sont recopiés, sans couper ni recoller l'arbre.
+     */
+    public TaskTree replaceAll(List<Task> sorted) {
+        return sorted.isEmpty() ? this : new TaskTree(replaceAll(root, sorted, 0, sorted.size()), comparator);
+    }
+
+    // Réunit node et batch (tâches absentes de node, nœuds simples sans plage)
+    private Node union(Node node, Node batch) {
+        if (node == null) {
+            return batch;
+        }
+        if (batch == null) {
+            return node;
+        }
+        if (node.priority < batch.priority) {
+            Node[] parts = split(node, batch.task, false);
+            return join(union(parts[0], batch.left), batch, union(parts[1], batch.right));
+        }
+        if (!(node instanceof Run)) {
+            Node[] parts = split(batch, node.task, false);
+            return join(union(node.left, parts[0]), node, union(node.right, parts[1]));
+        }
+        // Une plage garde sa place ; les tâches à insérer à l'intérieur la coupent ensuite
+        Node[] lower = split(batch, node.at(0), false);
+        Node[] upper = split(lower[1], node.at(node.count() - 1), false);
+        Node result = join(union(node.left, lower[0]), node, union(node.right, upper[1]));
+        for (Task task : new TaskTree(upper[0], comparator)) {
+            Node[] parts = split(result, task, false);
+            result = merge(merge(parts[0], new Node(task, priority(task), null, null)), parts[1]);
+        }
+        return result;
+    }
+
+    private Node removeAll(Node node, List<Task> sorted, int from, int to) {
+        if (node == null || from == to) {
+            return node;
+        }
+        if (node instanceof Run) {
+            int middle = (from + to) >>> 1;
+            Task task = sorted.get(middle);
+            Node[] lower = split(node, task, false);   // < task | >= task
+            Node[] upper = split(lower[1], task, true); // == task | > task
+            return merge(removeAll(lower[0], sorted, from, middle), removeAll(upper[1], sorted, middle + 1, to));
+        }
+        int index = binarySearch(sorted, from, to, node.task);
+        boolean found = index >= 0;
+        int position = found ? index : -index - 1;
+        Node left = removeAll(node.left, sorted, from, position);
+        Node right = removeAll(node.right, sorted, found ? position + 1 : position, to);
+        if (found) {
+            return merge(left, right);
+        }
+        return left == node.left && right == node.right ? node : join(left, node, right);
+    }
+
+    private Node replaceAll(Node node, List<Task> sorted, int from, int to) {
+        if (node == null || from == to) {
+            return node;
+        }
+        if (node instanceof Run) {
+            // Une plage ne peut pas changer une de ses tâches : elle est coupée autour
+            return union(removeAll(node, sorted, from, to), fromSorted(sorted.subList(from, to), comparator).root);
+        }
+        int index = binarySearch(sorted, from, to, node.task);
+        boolean found = index >= 0;
+        int position = found ? index : -index - 1;
+        Node left = replaceAll(node.left, sorted, from, position);
+        Node right = replaceAll(node.right, sorted, found ? position + 1 : position, to);
+        if (!found && left == node.left && right == node.right) {
+            return node;
+        }
+        return join(left, found ? new Node(sorted.get(position), node.priority, null, null) : node, right);
+    }
+
+    // Position de task dans [from, to), ou -(position d'insertion) - 1 (comme Collections.binarySearch)
+    private int binarySearch(List<Task> sorted, int from, int to, Task task) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int cmp = comparator.compare(sorted.get(middle), task);
+            if (cmp < 0) {
+                low = middle + 1;
+            } else if (cmp > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    // Vue liste en lecture seule (get en O(log N), itération en O(1) amorti)
+    public List<Task> asList() {
+        return new ListView();
+    }
+
+    /**
+     * Nombre de tâches inférieures à probe, qui n'a pas besoin d'être dans l'arbre : les
+     * tâches entre deux bornes occupent les positions [rank(début), rank(fin)).
+     */
+    public int rank(Task probe) {
+        Node node = root;
+        int offset = 0;
+        while (node != null) {
+            int count = node.count();
+            if (comparator.compare(probe, node.at(0)) <= 0) {
+                node = node.left;
+            } else if (comparator.compare(probe, node.at(count - 1)) > 0) {
+                offset += size(node.left) + count;
+                node = node.right;
+            } else {
+                return offset + size(node.left) + lowerBound(node, probe, false);
+            }
+        }
+        return offset;
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return iterator(0);
+    }
+
+    // Parcours dans l'ordre à partir de la position from, sans repasser par la racine à chaque tâche
+    public Iterator<Task> iterator(int from) {
+        return new Iterator<Task>() {
+            private final ArrayDeque<Node> path = new ArrayDeque<>();
+            private Node current; // nœud en cours de parcours et position dans ce nœud
+            private int position;
+
+            {
+                // Descente vers from : les nœuds quittés par la gauche restent à parcourir
+                Node node = root;
+                int index = from;
+                while (node != null) {
+                    int leftSize = size(node.left);
+                    if (index < leftSize) {
+                        path.push(node);
+                        node = node.left;
+                    } else if (index < leftSize + node.count()) {
+                        current = node;
+                        position = index - leftSize;
+                        break;
+                    } else {
+                        index -= leftSize + node.count();
+                        node = node.right;
+                    }
+                }
+            }
+
+            private void pushLeft(Node node) {
+                while (node != null) {
+                    path.push(node);
+                    node = node.left;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return current != null || !path.isEmpty();
+            }
+
+            @Override
+            public Task next() {
+                if (current == null) {
+                    if (path.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    current = path.pop();
+                    position = 0;
+                }
+                Node node = current;
+                Task task = node.at(position++);
+                if (position == node.count()) {
+                    current = null;
+                    pushLeft(node.right);
+                }
+                return task;
+            }
+        };
+    }
+
+    /**
+     * Sépare l'arbre en deux : les tâches inférieures à task (ou inférieures ou égales si
+     * inclusive) et les autres. Seuls les nœuds du chemin parcouru sont recopiés.
+     */
+    private Node[] split(Node node, Task task, boolean inclusive) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (node instanceof Run) {
+            return splitRun((Run) node, task, inclusive);
+        }
+        int cmp = comparator.compare(node.task, task);
+        if (cmp < 0 || (inclusive && cmp == 0)) {
+            Node[] parts = split(node.right, task, inclusive);
+            parts[0] = join(node.left, node, parts[0]);
+            return parts;
+        }
+        Node[] parts = split(node.left, task, inclusive);
+        parts[1] = join(parts[1], node, node.right);
+        return parts;
+    }
+
+    /**
+     * Coupe une plage : ses tâches avant task (ou jusqu'à task si inclusive) rejoignent le
+     * sous-arbre gauche, les autres le sous-arbre droit. Chaque morceau reçoit sa propre
+     * priorité puis est fusionné avec ses voisins ; les appelants le rattachent par join,
+     * qui le remonte si sa priorité dépasse celle des nœuds au-dessus.
+     */
+    private Node[] splitRun(Run run, Task task, boolean inclusive) {
+        int position = lowerBound(run, task, inclusive);
+        Node[] parts;
+        if (position == 0) {
+            parts = split(run.left, task, inclusive);
+            parts[1] = join(parts[1], run, run.right);
+            return parts;
+        }
+        if (position == run.count()) {
+            parts = split(run.right, task, inclusive);
+            parts[0] = join(run.left, run, parts[0]);
+            return parts;
+        }
+        int middle = run.from + position;
+        return new Node[] { merge(run.left, new Run(run.order, run.from, middle, null, null)),
+                merge(new Run(run.order, middle, run.to, null, null), run.right) };
+    }
+
+    // Nombre de tâches du nœud inférieures à task (ou inférieures ou égales si inclusive)
+    private int lowerBound(Node node, Task task, boolean inclusive) {
+        int low = 0;
+        int high = node.count();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int cmp = comparator.compare(node.at(middle), task);
+            if (cmp < 0 || (inclusive && cmp == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Arbre de left, node puis right (node.left et node.right sont ignorés). Un morceau de plage
+     * coupé plus bas garde la priorité de sa première tâche, qui peut dépasser celle de node :
+     * il remonte alors au-dessus, comme à l'insertion, pour que l'ordre de tas (donc la
+     * profondeur logarithmique) reste vrai.
+     */
+    private static Node join(Node left, Node node, Node right) {
+        if ((left == null || node.priority >= left.priority) && (right == null || node.priority >= right.priority)) {
+            return node.with(left, right);
+        }
+        if (right == null || (left != null && left.priority >= right.priority)) {
+            return left.with(left.left, join(left.right, node, right));
+        }
+        return right.with(join(left, node, right.left), right.right);
+    }
+
+    // Fusionne deux arbres dont toutes les tâches de left précèdent celles de right
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority >= right.priority) {
+            return left.with(left.left, merge(left.right, right));
+        }
+        return right.with(merge(left, right.left), right.right);
+    }
+
+    // Priorité déterministe dérivée de l'identifiant : la forme de l'arbre ne dépend que du contenu
+    private static int priority(Task task) {
+        return priority(task.getId());
+    }
+
+    private static int priority(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
+    }
+
+    // Priorité d'une plage : celle de sa première tâche, lue dans les colonnes sans la matérialiser
+    private static int runPriority(TaskColumns.Order order, int from) {
+        return priority(order.id(from));
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private final class ListView extends AbstractList<Task> implements RandomAccess {
+        @Override
+        public Task get(int index) {
+            return TaskTree.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return TaskTree.this.size();
+        }
+
+        @Override
+        public Iterator<Task> iterator() {
+            return TaskTree.this.iterator();
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            return o instanceof Task ? TaskTree.this.indexOf((Task) o) : -1;
+        }
+    }
+}
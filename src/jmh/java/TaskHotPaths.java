@@ -0,0 +1,110 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implémentation de hotpaths.HotPaths sur TaskManager, dans le paquetage par défaut comme
+ * l'application. Mêmes tâches générées que le scénario hotpaths de TaskBenchmark.
+ */
+public class TaskHotPaths implements hotpaths.HotPaths {
+    private static final Path SNAPSHOT = Paths.get("tasks.bin");
+    private static final Path JOURNAL = Paths.get("tasks.journal");
+
+    private final List<String> lines = new ArrayList<>();
+    private final List<Task> parsed = new ArrayList<>();
+    private TaskManager.Storage storage = TaskManager.Storage.HEAP;
+    private TaskManager manager;
+    private int count;
+
+    public TaskHotPaths() {
+        for (Task task : TaskBenchmark.generatedTasks(1_000)) {
+            lines.add(task.toString());
+        }
+        for (String line : lines) {
+            parsed.add(Task.fromString(line));
+        }
+    }
+
+    @Override
+    public void prepare(int count, String storage) throws Exception {
+        // Les tâches d'un vrai répertoire de travail ne doivent pas être écrasées
+        if (Files.exists(SNAPSHOT) || Files.exists(JOURNAL)) {
+            throw new IllegalStateException("Lancer dans un répertoire sans tasks.bin ni tasks.journal: "
+                    + Paths.get("").toAbsolutePath());
+        }
+        this.count = count;
+        this.storage = TaskManager.Storage.valueOf(storage);
+        BinaryTaskSnapshot.write(SNAPSHOT, TaskBenchmark.generatedTasks(count), 0, 0, count, null);
+        reload();
+        manager.sortByDate();
+        manager.sortByStatus();
+        manager.searchTasks("préchauffage de l'index");
+    }
+
+    @Override
+    public void cleanup() throws Exception {
+        manager = null;
+        Files.deleteIfExists(SNAPSHOT);
+        Files.deleteIfExists(JOURNAL);
+    }
+
+    @Override
+    public long parseLines() {
+        long total = 0;
+        for (String line : lines) {
+            total += Task.fromString(line).getDueEpochDay();
+        }
+        return total;
+    }
+
+    @Override
+    public long formatTasks() {
+        long total = 0;
+        for (Task task : parsed) {
+            total += task.toString().length();
+        }
+        return total;
+    }
+
+    @Override
+    public long loadFromFile() throws Exception {
+        TaskManager loaded = new TaskManager(storage);
+        loaded.loadFromFile();
+        return loaded.getTaskCount();
+    }
+
+    @Override
+    public void reload() throws Exception {
+        manager = null;
+        TaskManager loaded = new TaskManager(storage);
+        loaded.loadFromFile();
+        manager = loaded;
+    }
+
+    @Override
+    public long firstSortByDate() {
+        manager.sortByDate();
+        return manager.getTask(0).getId();
+    }
+
+    @Override
+    public long switchOrder() {
+        manager.sortByDate();
+        long first = manager.getTask(count / 2).getId();
+        manager.sortByStatus();
+        return first + manager.getTask(count / 2).getId();
+    }
+
+    @Override
+    public long search(String query) {
+        return manager.searchTasks(query).size();
+    }
+
+    @Override
+    public long saveToFile() throws Exception {
+        manager.saveToFile();
+        return manager.getTaskCount();
+    }
+}
@@ -0,0 +1,57 @@
+package hotpaths;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Premier sortByDate après un chargement, qui construit la vue par date. Chaque itération
+ * recharge le gestionnaire hors mesure puis ne chronomètre que ce tri.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class FirstSortBenchmark {
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    public int count;
+
+    @Param({ "HEAP", "COLUMNS" })
+    public String storage;
+
+    private HotPaths paths;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        paths = HotPaths.create();
+        paths.prepare(count, storage);
+    }
+
+    @Setup(Level.Iteration)
+    public void reload() throws Exception {
+        paths.reload();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        paths.cleanup();
+    }
+
+    @Benchmark
+    public long firstSortByDate() {
+        return paths.firstSortByDate();
+    }
+}
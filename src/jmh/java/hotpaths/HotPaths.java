@@ -0,0 +1,39 @@
+package hotpaths;
+
+/**
+ * Chemins critiques de l'application, vus par les benchmarks. JMH refuse les classes du
+ * paquetage par défaut et une classe d'un paquetage nommé ne peut pas y faire référence :
+ * l'implémentation (TaskHotPaths, paquetage par défaut) est chargée par son nom, puis
+ * appelée par cette interface.
+ */
+public interface HotPaths {
+    // Écrit tasks.bin avec count tâches générées et le charge dans le rangement donné
+    void prepare(int count, String storage) throws Exception;
+
+    // Supprime tasks.bin et tasks.journal
+    void cleanup() throws Exception;
+
+    // Task.fromString sur 1 000 lignes
+    long parseLines();
+
+    // Task.toString sur 1 000 tâches
+    long formatTasks();
+
+    long loadFromFile() throws Exception;
+
+    // Gestionnaire rechargé sans vue triée, pour mesurer seul le premier firstSortByDate
+    void reload() throws Exception;
+
+    long firstSortByDate();
+
+    // Passage de l'ordre par date à l'ordre par statut, vues déjà construites
+    long switchOrder();
+
+    long search(String query);
+
+    long saveToFile() throws Exception;
+
+    static HotPaths create() throws ReflectiveOperationException {
+        return (HotPaths) Class.forName("TaskHotPaths").getDeclaredConstructor().newInstance();
+    }
+}
@@ -0,0 +1,39 @@
+package hotpaths;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Task.fromString et Task.toString, par lot de 1 000 lignes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskCodecBenchmark {
+    private HotPaths paths;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        paths = HotPaths.create();
+    }
+
+    @Benchmark
+    public long fromString() {
+        return paths.parseLines();
+    }
+
+    @Benchmark
+    public long toString1000() {
+        return paths.formatTasks();
+    }
+}
@@ -0,0 +1,78 @@
+package hotpaths;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Chargement, changement d'ordre, recherche (une tâche, environ 1 %, toutes) et sauvegarde
+ * pour chaque nombre de tâches et chaque rangement. SampleTime donne la moyenne, p50 et p99 ;
+ * `-prof gc` (ajouté par `gradle jmh`) les octets alloués par opération. 10 millions de
+ * tâches demandent un tas de plusieurs Go : -Pjmh='-jvmArgsAppend -Xmx12g'.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskManagerBenchmark {
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    public int count;
+
+    @Param({ "HEAP", "COLUMNS" })
+    public String storage;
+
+    private HotPaths paths;
+
+    @Setup
+    public void setUp() throws Exception {
+        paths = HotPaths.create();
+        paths.prepare(count, storage);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        paths.cleanup();
+    }
+
+    @Benchmark
+    public long loadFromFile() throws Exception {
+        return paths.loadFromFile();
+    }
+
+    @Benchmark
+    public long sortByDateThenStatus() {
+        return paths.switchOrder();
+    }
+
+    @Benchmark
+    public long searchOneTask() {
+        return paths.search("tâche 12345");
+    }
+
+    @Benchmark
+    public long searchOnePercent() {
+        return paths.search("tâche 12");
+    }
+
+    @Benchmark
+    public long searchAll() {
+        return paths.search("tâche");
+    }
+
+    @Benchmark
+    public long saveToFile() throws Exception {
+        return paths.saveToFile();
+    }
+}